@@ -0,0 +1,95 @@
+#!/usr/bin/env bash
+#
+# Compares the time until the application answers its health check, and its resident memory at that point, between
+#   jvm     the executable jar
+#   aot     the same jar built with -Paot and started with -Dspring.aot.enabled=true
+#   cds     the exploded jar started with an AppCDS archive recorded by a training run
+#   native  the GraalVM native image built with -Pnative
+#
+#   scripts/startup-comparison.sh [mode...]        every mode by default
+#
+# Every mode needs the MongoDB of SPRING_DATA_MONGODB_URI (mongodb://localhost:27017 by default), the health check includes it.
+# RUNS sets the number of starts per mode (5), the median is reported. PORT sets the HTTP port (18080).
+# Each mode rebuilds the project with ./mvnw, native needs a GraalVM JDK 17 with native-image on the path.
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+ARTIFACT=Medium-ReactiveWebFlux5-Security_db
+JAR=target/$ARTIFACT-0.0.1-SNAPSHOT.jar
+MAIN_CLASS=com.example.mediumreactivewebflux5security_db.MediumReactiveWebFlux5SecurityDbApplication
+CDS_DIR=target/cds
+MODES=("$@")
+if [ ${#MODES[@]} -eq 0 ]; then
+    MODES=(jvm aot cds native)
+fi
+
+# Starts the command, polls the health endpoint and prints "<milliseconds until healthy> <RSS in KiB>".
+measure() {
+    local start pid elapsed rss
+    start=$(date +%s%N)
+    "$@" --server.port="$PORT" > target/startup-comparison.log 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:$PORT/actuator/health"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "the application exited before it was healthy, see target/startup-comparison.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$((($(date +%s%N) - start) / 1000000))
+    rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" || true
+    echo "$elapsed $rss"
+}
+
+# Starts the command RUNS times and prints the median startup time and RSS.
+report() {
+    local mode=$1 times=() rsss=() result
+    shift
+    for _ in $(seq "$RUNS"); do
+        result=$(measure "$@")
+        times+=("${result% *}")
+        rsss+=("${result#* }")
+    done
+    printf '%-8s %10s ms %10s MiB\n' "$mode" \
+        "$(printf '%s\n' "${times[@]}" | sort -n | sed -n "$(((RUNS + 1) / 2))p")" \
+        "$(($(printf '%s\n' "${rsss[@]}" | sort -n | sed -n "$(((RUNS + 1) / 2))p") / 1024))"
+}
+
+for mode in "${MODES[@]}"; do
+    case $mode in
+        jvm)
+            ./mvnw -q -DskipTests package
+            report jvm java -jar "$JAR"
+            ;;
+        aot)
+            ./mvnw -q -Paot -DskipTests package
+            report aot java -Dspring.aot.enabled=true -jar "$JAR"
+            ;;
+        cds)
+            # CDS only archives classes read from plain jars on the class path, not from the nested jars of the executable
+            # jar or from directories, so the jar is exploded and the application classes jarred again
+            ./mvnw -q -DskipTests package
+            rm -rf "$CDS_DIR"
+            mkdir -p "$CDS_DIR"
+            (cd "$CDS_DIR" && jar -xf "../../$JAR")
+            jar -cf "$CDS_DIR/application.jar" -C "$CDS_DIR/BOOT-INF/classes" .
+            classpath="$CDS_DIR/application.jar:$CDS_DIR/BOOT-INF/lib/*"
+            measure java -XX:ArchiveClassesAtExit="$CDS_DIR/application.jsa" -cp "$classpath" "$MAIN_CLASS" > /dev/null
+            report cds java -XX:SharedArchiveFile="$CDS_DIR/application.jsa" -Xshare:auto -cp "$classpath" "$MAIN_CLASS"
+            ;;
+        native)
+            ./mvnw -q -Pnative -DskipTests package
+            report native "target/$ARTIFACT"
+            ;;
+        *)
+            echo "unknown mode $mode, expected jvm, aot, cds or native" >&2
+            exit 1
+            ;;
+    esac
+done
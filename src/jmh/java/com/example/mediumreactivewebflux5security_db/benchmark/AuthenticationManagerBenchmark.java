@@ -0,0 +1,63 @@
+package com.example.mediumreactivewebflux5security_db.benchmark;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.security.AuthenticationManager;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link AuthenticationManager#authenticate(Authentication)} of a bearer token, against a user details service answering
+ * from memory so only the CPU cost of the authentication itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthenticationManagerBenchmark {
+
+    @Param({"false", "true"})
+    private boolean rolesInToken;
+
+    private AuthenticationManager authenticationManager;
+    private Authentication bearerToken;
+
+    @Setup
+    public void setUp() {
+        JWTUtil jwtUtil = BenchmarkFixtures.jwtUtil(10_000, rolesInToken);
+        User user = BenchmarkFixtures.user();
+        Mono<UserDetails> storedUser = Mono.just(user);
+        ReactiveUserDetailsService userDetailsService = username -> storedUser;
+        authenticationManager = new AuthenticationManager(
+                jwtUtil, userDetailsService, BenchmarkFixtures.tokenRevocationRegistry(),
+                BenchmarkFixtures.securityMetrics(), BenchmarkFixtures.authenticationAuditor(),
+                BenchmarkFixtures.sessionRevocationList());
+
+        String token = jwtUtil.generateToken(user, "benchmark-session");
+        bearerToken = new UsernamePasswordAuthenticationToken(token, token);
+    }
+
+    @Benchmark
+    public Authentication authenticate() {
+        return authenticationManager.authenticate(bearerToken).block();
+    }
+
+}
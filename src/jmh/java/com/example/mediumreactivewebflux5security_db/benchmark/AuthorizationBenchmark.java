@@ -0,0 +1,121 @@
+package com.example.mediumreactivewebflux5security_db.benchmark;
+
+import com.example.mediumreactivewebflux5security_db.config.security.RouteAuthorizationManager;
+import com.example.mediumreactivewebflux5security_db.controller.SecuredController;
+import com.example.mediumreactivewebflux5security_db.dto.Message;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeReactiveMethodInterceptor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authorizing a call to the admin-only endpoint and invoking its handler, with the route table checked in the filter chain
+ * against the {@code @PreAuthorize} method security proxy it replaced. An admin caller measures a granted call, a user caller a
+ * denied one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AuthorizationBenchmark {
+
+    @Param({"ROLE_ADMIN", "ROLE_USER"})
+    private Role callerRole;
+
+    private AnnotationConfigApplicationContext context;
+    private RouteAuthorizationManager routeAuthorizationManager;
+    private AuthorizationContext adminRequest;
+    private SecuredController securedController;
+    private PreAuthorizeController preAuthorizeController;
+    private Mono<Authentication> caller;
+    private Context securityContext;
+
+    @Setup
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(SecuredController.class);
+        context.registerBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        context.refresh();
+        routeAuthorizationManager = new RouteAuthorizationManager(context.getBeanProvider(RequestMappingHandlerMapping.class));
+        routeAuthorizationManager.afterSingletonsInstantiated();
+        securedController = context.getBean(SecuredController.class);
+        adminRequest = new AuthorizationContext(MockServerWebExchange.from(MockServerHttpRequest.get("/secured/admin")));
+
+        ProxyFactory proxyFactory = new ProxyFactory(new PreAuthorizeController());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(AuthorizationManagerBeforeReactiveMethodInterceptor.preAuthorize());
+        preAuthorizeController = (PreAuthorizeController) proxyFactory.getProxy();
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken("caller", "token", Role.authoritiesOf(List.of(callerRole)));
+        caller = Mono.just(authentication);
+        securityContext = ReactiveSecurityContextHolder.withAuthentication(authentication);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object routeTable() {
+        try {
+            return routeAuthorizationManager.verify(caller, adminRequest)
+                    .then(Mono.defer(securedController::admin))
+                    .block();
+        } catch (AccessDeniedException exception) {
+            return exception;
+        }
+    }
+
+    @Benchmark
+    public Object preAuthorize() {
+        try {
+            return preAuthorizeController.admin()
+                    .contextWrite(securityContext)
+                    .block();
+        } catch (AccessDeniedException exception) {
+            return exception;
+        }
+    }
+
+    /**
+     * The admin endpoint of {@link SecuredController} as it was guarded before the route table.
+     */
+    public static class PreAuthorizeController {
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public Mono<ResponseEntity<Message>> admin() {
+            return Mono.just(ResponseEntity.ok(new Message("Admin resource")));
+        }
+    }
+
+}
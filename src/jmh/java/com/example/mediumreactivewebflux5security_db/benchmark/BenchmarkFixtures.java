@@ -0,0 +1,124 @@
+package com.example.mediumreactivewebflux5security_db.benchmark;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.ClaimsCache;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.SigningKeyring;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.security.AuthenticationAuditor;
+import com.example.mediumreactivewebflux5security_db.config.security.SessionRevocationList;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Builds the beans under benchmark without a Spring context, with the same settings as {@code application.yml}.
+ * Every input is fixed so runs on the same hardware are comparable.
+ */
+final class BenchmarkFixtures {
+
+    static final String SECRET = "ThisIsSecretForJWTHS512SignatureAlgorithmThatMUSTHave64ByteLength";
+    static final String EXPIRATION_TIME = "28800";
+
+    private BenchmarkFixtures() {
+    }
+
+    static SigningKeyring signingKeyring(String algorithm) {
+        SigningKeyring signingKeyring = new SigningKeyring();
+        ReflectionTestUtils.setField(signingKeyring, "secret", SECRET);
+        ReflectionTestUtils.setField(signingKeyring, "expirationTime", Long.parseLong(EXPIRATION_TIME));
+        ReflectionTestUtils.setField(signingKeyring, "algorithmName", algorithm);
+        ReflectionTestUtils.setField(signingKeyring, "generateKeys", true);
+        signingKeyring.init();
+        return signingKeyring;
+    }
+
+    static JWTUtil jwtUtil(long claimsCacheSize, boolean rolesInToken) {
+        return jwtUtil(claimsCacheSize, rolesInToken, signingKeyring("HS512"));
+    }
+
+    static JWTUtil jwtUtil(long claimsCacheSize, boolean rolesInToken, SigningKeyring signingKeyring) {
+        ClaimsCache claimsCache = new ClaimsCache();
+        ReflectionTestUtils.setField(claimsCache, "maximumSize", claimsCacheSize);
+        claimsCache.init();
+
+        JWTUtil jwtUtil = new JWTUtil(claimsCache, signingKeyring);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", EXPIRATION_TIME);
+        ReflectionTestUtils.setField(jwtUtil, "rolesInToken", rolesInToken);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    static TokenRevocationRegistry tokenRevocationRegistry() {
+        TokenRevocationRegistry tokenRevocationRegistry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(tokenRevocationRegistry, "maxStaleness", 300L);
+        return tokenRevocationRegistry;
+    }
+
+    static SecurityMetrics securityMetrics() {
+        return new SecurityMetrics(new SimpleMeterRegistry());
+    }
+
+    static AuthenticationAuditor authenticationAuditor() {
+        AuthenticationAuditor authenticationAuditor = new AuthenticationAuditor();
+        ReflectionTestUtils.setField(authenticationAuditor, "successSampleRate", 0.01);
+        return authenticationAuditor;
+    }
+
+    /**
+     * @return an empty revocation list, synced once with no revoked session, so tokens are only checked against the in-memory filter
+     */
+    static SessionRevocationList sessionRevocationList() {
+        RefreshSessionRepository refreshSessionRepository = Mockito.mock(RefreshSessionRepository.class);
+        Mockito.when(refreshSessionRepository.findByRevokedTrueAndUpdatedAtAfter(Mockito.any())).thenReturn(Flux.empty());
+        SessionRevocationList sessionRevocationList = new SessionRevocationList(refreshSessionRepository);
+        ReflectionTestUtils.setField(sessionRevocationList, "accessTokenLifetime", Long.parseLong(EXPIRATION_TIME));
+        ReflectionTestUtils.setField(sessionRevocationList, "expectedRevocations", 100_000);
+        ReflectionTestUtils.setField(sessionRevocationList, "falsePositiveRate", 0.001);
+        sessionRevocationList.init();
+        sessionRevocationList.start();
+        return sessionRevocationList;
+    }
+
+    static User user() {
+        return new User("1", "user", "{bcrypt}$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z8Xx5XrZrp5dQYgnHBGjJbmi", true, List.of(Role.ROLE_USER));
+    }
+
+    static User admin() {
+        return new User("2", "admin", "{bcrypt}$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z8Xx5XrZrp5dQYgnHBGjJbmi", true, List.of(Role.ROLE_USER, Role.ROLE_ADMIN));
+    }
+
+    /**
+     * @return a token correctly signed with the current key of the keyring that expired in 1970
+     */
+    static String expiredToken(SigningKeyring signingKeyring) {
+        SigningKeyring.SigningKey key = signingKeyring.current();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                .setSubject("user")
+                .setIssuedAt(new Date(0))
+                .setExpiration(new Date(1000))
+                .signWith(key.signingKey(), key.algorithm())
+                .compact();
+    }
+
+    /**
+     * @param token a valid token
+     * @return the same token with one character of its signature changed
+     */
+    static String tamper(String token) {
+        int index = token.lastIndexOf('.') + 5;
+        char replacement = token.charAt(index) == 'A' ? 'B' : 'A';
+        return token.substring(0, index) + replacement + token.substring(index + 1);
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.example.mediumreactivewebflux5security_db.benchmark;
+
+import com.example.mediumreactivewebflux5security_db.config.codec.FixedShapeJsonDecoder;
+import com.example.mediumreactivewebflux5security_db.config.codec.FixedShapeJsonEncoder;
+import com.example.mediumreactivewebflux5security_db.controller.SecuredController;
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing the {@code /login} and {@code /secured/user} bodies and of reading a login request, with the default
+ * {@link Jackson2JsonEncoder} and {@link Jackson2JsonDecoder} against the fixed shape codecs, into and from the pooled Netty
+ * buffers the server uses. Each encoded buffer is released so the pool is reused as on the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonCodecBenchmark {
+
+    private static final ResolvableType AUTH_RESPONSE = ResolvableType.forClass(AuthResponse.class);
+    private static final ResolvableType AUTH_REQUEST = ResolvableType.forClass(AuthRequest.class);
+    private static final ResolvableType MESSAGE = ResolvableType.forClass(Message.class);
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private Encoder<Object> jacksonEncoder;
+    private Encoder<Object> fixedShapeEncoder;
+    private Decoder<Object> jacksonDecoder;
+    private Decoder<Object> fixedShapeDecoder;
+    private AuthResponse authResponse;
+    private Message message;
+    private byte[] authRequest;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        jacksonEncoder = new Jackson2JsonEncoder(objectMapper);
+        fixedShapeEncoder = new FixedShapeJsonEncoder(new Jackson2JsonEncoder(objectMapper), SecuredController.CONSTANT_BODIES);
+        jacksonDecoder = new Jackson2JsonDecoder(objectMapper);
+        fixedShapeDecoder = new FixedShapeJsonDecoder(new Jackson2JsonDecoder(objectMapper));
+
+        String token = BenchmarkFixtures.jwtUtil(0, false).generateToken(BenchmarkFixtures.user());
+        authResponse = new AuthResponse(token, "0b5e1c9a-5d0f-4c1e-9d7a-3f2b8e6a4c10.kY3pW9qT2vN8xL5rJ7mH1sD4fG6aZ0bC");
+        message = SecuredController.CONSTANT_BODIES.get(0);
+        authRequest = "{\"username\":\"user\",\"password\":\"password\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int jacksonAuthResponse() {
+        return release(jacksonEncoder.encodeValue(authResponse, bufferFactory, AUTH_RESPONSE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public int fixedShapeAuthResponse() {
+        return release(fixedShapeEncoder.encodeValue(authResponse, bufferFactory, AUTH_RESPONSE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public int jacksonMessage() {
+        return release(jacksonEncoder.encodeValue(message, bufferFactory, MESSAGE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public int preSerializedMessage() {
+        return release(fixedShapeEncoder.encodeValue(message, bufferFactory, MESSAGE, MediaType.APPLICATION_JSON, Map.of()));
+    }
+
+    @Benchmark
+    public Object jacksonAuthRequest() {
+        return jacksonDecoder.decode(requestBuffer(), AUTH_REQUEST, MediaType.APPLICATION_JSON, Map.of());
+    }
+
+    @Benchmark
+    public Object fixedShapeAuthRequest() {
+        return fixedShapeDecoder.decode(requestBuffer(), AUTH_REQUEST, MediaType.APPLICATION_JSON, Map.of());
+    }
+
+    private DataBuffer requestBuffer() {
+        return bufferFactory.allocateBuffer(authRequest.length).write(authRequest);
+    }
+
+    private static int release(DataBuffer buffer) {
+        int length = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return length;
+    }
+
+}
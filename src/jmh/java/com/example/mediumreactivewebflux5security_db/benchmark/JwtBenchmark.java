@@ -0,0 +1,95 @@
+package com.example.mediumreactivewebflux5security_db.benchmark;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.InvalidTokenException;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.SigningKeyring;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verification cost of {@link JWTUtil} for each family of signing algorithms, with the claims cache disabled
+ * ({@code claimsCacheSize = 0}) and enabled.
+ * The expired and garbage tokens are rejected by the pre-validation, the tampered one only by the signature check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtBenchmark {
+
+    @Param({"0", "10000"})
+    private long claimsCacheSize;
+    @Param({"HS512", "RS256", "ES256"})
+    private String algorithm;
+
+    private JWTUtil jwtUtil;
+    private UserDetails user;
+    private String validToken;
+    private String expiredToken;
+    private String tamperedToken;
+    private String garbageToken;
+
+    @Setup
+    public void setUp() {
+        SigningKeyring signingKeyring = BenchmarkFixtures.signingKeyring(algorithm);
+        jwtUtil = BenchmarkFixtures.jwtUtil(claimsCacheSize, false, signingKeyring);
+        user = BenchmarkFixtures.user();
+        validToken = jwtUtil.generateToken(user);
+        expiredToken = BenchmarkFixtures.expiredToken(signingKeyring);
+        tamperedToken = BenchmarkFixtures.tamper(validToken);
+        garbageToken = "not-a-jwt:" + validToken;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Claims extractAllClaimsValid() {
+        return jwtUtil.extractAllClaims(validToken);
+    }
+
+    @Benchmark
+    public Object extractAllClaimsExpired() {
+        try {
+            return jwtUtil.extractAllClaims(expiredToken);
+        } catch (InvalidTokenException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object extractAllClaimsTampered() {
+        try {
+            return jwtUtil.extractAllClaims(tamperedToken);
+        } catch (InvalidTokenException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object extractAllClaimsGarbage() {
+        try {
+            return jwtUtil.extractAllClaims(garbageToken);
+        } catch (InvalidTokenException e) {
+            return e;
+        }
+    }
+
+}
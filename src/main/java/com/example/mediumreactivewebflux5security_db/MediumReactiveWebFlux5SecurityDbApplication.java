@@ -1,9 +1,12 @@
 package com.example.mediumreactivewebflux5security_db;
 
+import com.example.mediumreactivewebflux5security_db.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class MediumReactiveWebFlux5SecurityDbApplication {
 
     public static void main(String[] args) {
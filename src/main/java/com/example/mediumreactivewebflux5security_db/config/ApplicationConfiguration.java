@@ -1,18 +1,31 @@
 package com.example.mediumreactivewebflux5security_db.config;
 
+import com.example.mediumreactivewebflux5security_db.config.mongo.ConnectionPoolGuard;
+import com.example.mediumreactivewebflux5security_db.config.mongo.MongoClientConfiguration;
+import com.example.mediumreactivewebflux5security_db.config.security.BCryptCostCalibrator;
+import com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService;
 import com.example.mediumreactivewebflux5security_db.model.Role;
 import com.example.mediumreactivewebflux5security_db.model.User;
 import com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository;
+import com.mongodb.ReadPreference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -23,12 +36,18 @@ import java.util.List;
  *     </li>
  *     <li>
  *         Create the {@link PasswordEncoder PasswordEncoder} bean.
- *         <p>Use the {@link BCryptPasswordEncoder BCryptPasswordEncoder} class to create the PasswordEncoder.</p>
+ *         <p>Use the {@link BCryptPasswordEncoder BCryptPasswordEncoder} class behind a {@link DelegatingPasswordEncoder DelegatingPasswordEncoder}
+ *         to create the PasswordEncoder, so stored hashes can be upgraded when the cost changes.</p>
  *     </li>
  *     <li>
  *         Create the {@link ReactiveUserDetailsService ReactiveUserDetailsService} bean
  *         (it is equivalent to {@link UserDetailsService UserDetailsService} in blocking spring).
- *         <p>Map the User object to a {@link org.springframework.security.core.userdetails.User org.springframework.security.core.userdetails.User} object.</p>
+ *         <p>Read only the {@link com.example.mediumreactivewebflux5security_db.model.UserCredentials credentials} of the user, through the unique username index, and use them directly as the {@link UserDetails UserDetails}, so the expiry and lock checks follow the stored instants.</p>
+ *         <p>Wrap it in a {@link CachingReactiveUserDetailsService} so authenticated requests do not hit the db every time, and give it a single {@code $in} query to load several users at once.</p>
+ *         <p>The lookups fail fast when the {@link ConnectionPoolGuard} sees the connection pool saturated, and may read from secondaries.</p>
+ *     </li>
+ *     <li>
+ *         Create the {@link ReactiveUserDetailsPasswordService ReactiveUserDetailsPasswordService} bean that rewrites upgraded password hashes.
  *     </li>
  *     <li>
  *         Insert some demo data in db using {@link CommandLineRunner CommandLineRunner}.
@@ -37,51 +56,113 @@ import java.util.List;
  */
 @Slf4j
 @Configuration
+@EnableScheduling
 @RequiredArgsConstructor
 public class ApplicationConfiguration {
 
     private final ReactiveUserRepository reactiveUserRepository;
 
+    /**
+     * Returns a PasswordEncoder bean that hashes new passwords with BCrypt at the configured cost.
+     * <p>When {@code targetMillis} is positive, the cost is raised at startup until a verification takes at least that long on
+     * this hardware. Hashes without an <code>{id}</code> prefix, or with a lower cost, are still accepted and
+     * {@link PasswordEncoder#upgradeEncoding(String) reported for upgrade}.</p>
+     *
+     * @param strength     the BCrypt cost, or the minimum cost when calibrating
+     * @param targetMillis the verification time to calibrate the cost for, {@code 0} disables the calibration
+     * @return a PasswordEncoder bean
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${password.hashing.strength}") int strength,
+            @Value("${password.hashing.targetMillis}") long targetMillis) {
+        return BCryptCostCalibrator.passwordEncoder(strength, targetMillis);
     }
 
     /**
-     * Returns a ReactiveUserDetailsService bean that retrieves user details from the database.
+     * Returns a ReactiveUserDetailsService bean that retrieves user details from the database and caches them.
+     * <p>With a read preference other than {@code primary}, the lookups go through a template of their own, so only they read
+     * from secondaries: a user changed or locked on the primary may then be served as it was up to {@code maxStalenessSeconds}
+     * earlier, on top of the cache's time to live.</p>
      *
+     * @param timeToLive            seconds after which a cached user is loaded again from the database
+     * @param maximumSize           maximum number of cached users
+     * @param readPreference        the read preference of the lookups
+     * @param maxStalenessSeconds   how far behind the primary a secondary may be to serve a lookup, {@code 0} for no bound
+     * @param reactiveMongoTemplate the template whose database and converter the secondary reads share
+     * @param connectionPoolGuard   the guard rejecting lookups while the connection pool is saturated
      * @return a ReactiveUserDetailsService bean
      */
     @Bean
-    public ReactiveUserDetailsService reactiveUserDetailsService() {
-        return username -> reactiveUserRepository.findByUsername(username)
-                .map(user -> new org.springframework.security.core.userdetails.User(
-                                user.getUsername(),
-                                user.getPassword(),
-                                user.getAuthorities()
-                        )
+    public CachingReactiveUserDetailsService reactiveUserDetailsService(
+            @Value("${user.cache.timeToLive}") long timeToLive,
+            @Value("${user.cache.maximumSize}") long maximumSize,
+            @Value("${mongo.authReads.readPreference}") String readPreference,
+            @Value("${mongo.authReads.maxStalenessSeconds}") long maxStalenessSeconds,
+            ReactiveMongoTemplate reactiveMongoTemplate,
+            ConnectionPoolGuard connectionPoolGuard) {
+        ReactiveUserRepository credentialsRepository = credentialsRepository(
+                MongoClientConfiguration.readPreference(readPreference, maxStalenessSeconds), reactiveMongoTemplate);
+        ReactiveUserDetailsService databaseUserDetailsService = username -> connectionPoolGuard.guard(
+                credentialsRepository.findCredentialsByUsername(username).cast(UserDetails.class));
+        return new CachingReactiveUserDetailsService(
+                databaseUserDetailsService,
+                usernames -> connectionPoolGuard.guard(
+                        credentialsRepository.findCredentialsByUsernameIn(usernames).cast(UserDetails.class)),
+                Duration.ofSeconds(timeToLive),
+                maximumSize
+        );
+    }
+
+    private ReactiveUserRepository credentialsRepository(ReadPreference readPreference, ReactiveMongoTemplate reactiveMongoTemplate) {
+        if (readPreference.equals(ReadPreference.primary())) {
+            return reactiveUserRepository;
+        }
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(reactiveMongoTemplate.getMongoDatabaseFactory(), reactiveMongoTemplate.getConverter());
+        template.setReadPreference(readPreference);
+        return new ReactiveMongoRepositoryFactory(template).getRepository(ReactiveUserRepository.class);
+    }
+
+    /**
+     * Returns a ReactiveUserDetailsPasswordService bean that stores an upgraded password hash and evicts the cached user.
+     * <p>The hash is only replaced if the stored one is still the hash that was verified, in a single conditional update, so a
+     * concurrent password change is never overwritten. The upgrade is then dropped and the returned {@code Mono} is empty.</p>
+     *
+     * @param userDetailsService the cache of user details to invalidate
+     * @return a ReactiveUserDetailsPasswordService bean
+     */
+    @Bean
+    public ReactiveUserDetailsPasswordService reactiveUserDetailsPasswordService(CachingReactiveUserDetailsService userDetailsService) {
+        return (userDetails, newPassword) -> reactiveUserRepository
+                .updatePasswordByUsernameAndPassword(userDetails.getUsername(), userDetails.getPassword(), newPassword)
+                .filter(updated -> updated > 0)
+                .doOnNext(updated -> userDetailsService.invalidate(userDetails.getUsername()))
+                .map(updated -> org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                        .password(newPassword)
+                        .build()
                 );
     }
 
     /**
      * Returns a CommandLineRunner bean that inserts demo users into the database.
      *
+     * @param passwordEncoder the encoder hashing the demo passwords
      * @return a CommandLineRunner bean
      */
     @Bean
-    public CommandLineRunner commandLineRunner() {
+    public CommandLineRunner commandLineRunner(PasswordEncoder passwordEncoder) {
         return args -> {
             User user = new User();
             user.setUserId("1");
             user.setUsername("user");
-            user.setPassword(passwordEncoder().encode("user"));
+            user.setPassword(passwordEncoder.encode("user"));
             user.setEnabled(true);
             user.setRoles(List.of(Role.ROLE_USER));
 
             User admin = new User();
             admin.setUserId("2");
             admin.setUsername("admin");
-            admin.setPassword(passwordEncoder().encode("admin"));
+            admin.setPassword(passwordEncoder.encode("admin"));
             admin.setEnabled(true);
             admin.setRoles(List.of(Role.ROLE_USER, Role.ROLE_ADMIN));
 
@@ -0,0 +1,70 @@
+package com.example.mediumreactivewebflux5security_db.config;
+
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.IntrospectionRequest;
+import com.example.mediumreactivewebflux5security_db.dto.Message;
+import com.example.mediumreactivewebflux5security_db.dto.RefreshRequest;
+import com.example.mediumreactivewebflux5security_db.dto.TokenIntrospection;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportRecord;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportResult;
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.model.UserCredentials;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.util.List;
+
+/**
+ * <p>The reflection and resource hints a GraalVM native image of the application needs beyond those Spring AOT infers itself.</p>
+ * <ul>
+ *     <li>jjwt-api instantiates its implementation by class name ({@code Jwts.builder()}, {@code Jwts.parserBuilder()},
+ *     {@code Keys.keyPairFor(...)}) and finds the Jackson serializer and the compression codecs through {@code META-INF/services}.
+ *     jjwt-impl and jjwt-jackson are only on the runtime classpath, so their classes are named rather than referenced.</li>
+ *     <li>The DTOs and documents are bound by Jackson and by the Mongo mapping through their Lombok generated constructors and
+ *     accessors, including the ones read outside of a controller signature such as the NDJSON import lines and the
+ *     {@link UserCredentials} projection.</li>
+ * </ul>
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<String> JJWT_INSTANTIATED_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    );
+
+    private static final List<String> JJWT_INVOKED_TYPES = List.of(
+            "io.jsonwebtoken.impl.crypto.MacProvider",
+            "io.jsonwebtoken.impl.crypto.RsaProvider",
+            "io.jsonwebtoken.impl.crypto.EllipticCurveProvider"
+    );
+
+    private static final Class<?>[] BOUND_TYPES = {
+            AuthRequest.class, AuthResponse.class, RefreshRequest.class, Message.class,
+            UserImportRecord.class, UserImportResult.class, IntrospectionRequest.class, TokenIntrospection.class,
+            User.class, UserCredentials.class, RefreshSession.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        JJWT_INSTANTIATED_TYPES.forEach(type -> hints.reflection().registerTypeIfPresent(classLoader, type,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS));
+        JJWT_INVOKED_TYPES.forEach(type -> hints.reflection().registerTypeIfPresent(classLoader, type,
+                MemberCategory.INVOKE_DECLARED_METHODS));
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), BOUND_TYPES);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.example.mediumreactivewebflux5security_db.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * <p>Sizes the event loops the Reactor Netty server runs on, and the connection pool of the {@code WebClient}s built from
+ * the auto-configured builder. Boot uses this {@link ReactorResourceFactory} for both instead of its own, the protocol,
+ * compression and timeout settings stay under {@code server.*} (see {@code application-tuned.yml}).</p>
+ * <p>The resources are dedicated to the application rather than Reactor's global ones, so the sizes apply even when another
+ * library has already created the global loops.</p>
+ */
+@Configuration
+public class NettyServerConfiguration {
+
+    /**
+     * @param selectThreads        the threads accepting connections, {@code 0} lets the worker threads accept them too
+     * @param workerThreads        the threads running the I/O and the handlers, {@code 0} for Reactor's default of one per
+     *                             core and at least 4
+     * @param maxConnections       the pooled connections per remote host of outbound clients
+     * @param pendingAcquireMillis how long an outbound request waits for a pooled connection before it fails
+     * @param maxIdleSeconds       how long a pooled connection stays open without being used, below the idle timeout of the
+     *                             servers it connects to so a request never picks a connection they are closing
+     * @return the ReactorResourceFactory bean
+     */
+    @Bean
+    public ReactorResourceFactory reactorServerResourceFactory(
+            @Value("${netty.eventLoop.selectThreads}") int selectThreads,
+            @Value("${netty.eventLoop.workerThreads}") int workerThreads,
+            @Value("${netty.client.maxConnections}") int maxConnections,
+            @Value("${netty.client.pendingAcquireMillis}") long pendingAcquireMillis,
+            @Value("${netty.client.maxIdleSeconds}") long maxIdleSeconds) {
+        ReactorResourceFactory factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        int workers = workerThreads > 0 ? workerThreads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        factory.setLoopResourcesSupplier(() -> selectThreads > 0
+                ? LoopResources.create("http", selectThreads, workers, true)
+                : LoopResources.create("http", workers, true));
+        factory.setConnectionProviderSupplier(() -> ConnectionProvider.builder("http")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireMillis))
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .build());
+        return factory;
+    }
+
+}
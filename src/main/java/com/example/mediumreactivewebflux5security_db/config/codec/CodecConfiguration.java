@@ -0,0 +1,30 @@
+package com.example.mediumreactivewebflux5security_db.config.codec;
+
+import com.example.mediumreactivewebflux5security_db.controller.SecuredController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers the fixed shape JSON codecs of the auth DTOs ahead of the default Jackson ones, every other type is still
+ * written and read by Jackson with Spring Boot's {@link ObjectMapper}.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class CodecConfiguration implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().registerWithDefaultConfig(
+                new FixedShapeJsonEncoder(new Jackson2JsonEncoder(objectMapper), SecuredController.CONSTANT_BODIES));
+        configurer.customCodecs().registerWithDefaultConfig(
+                new FixedShapeJsonDecoder(new Jackson2JsonDecoder(objectMapper)));
+    }
+
+}
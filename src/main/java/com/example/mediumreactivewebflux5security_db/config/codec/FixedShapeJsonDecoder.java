@@ -0,0 +1,80 @@
+package com.example.mediumreactivewebflux5security_db.config.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * <p>Reads the {@code AuthRequest}, {@code AuthResponse} and {@code Message} DTOs from a JSON body with a streaming parser
+ * over the request's buffer, without going through Jackson databind. The result is the same as with Spring Boot's
+ * {@code ObjectMapper}, malformed bodies are rejected with a {@link DecodingException} like the Jackson decoder does.</p>
+ * <p>Streams of DTOs, read from a JSON array, are left to the fallback decoder.</p>
+ */
+public class FixedShapeJsonDecoder extends AbstractDataBufferDecoder<Object> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final AbstractJackson2Decoder fallback;
+
+    /**
+     * @param fallback the Jackson decoder that reads streams of DTOs
+     */
+    public FixedShapeJsonDecoder(AbstractJackson2Decoder fallback) {
+        super(MediaType.APPLICATION_JSON);
+        this.fallback = fallback;
+    }
+
+    @Override
+    public void setMaxInMemorySize(int byteCount) {
+        super.setMaxInMemorySize(byteCount);
+        fallback.setMaxInMemorySize(byteCount);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return JsonShape.of(elementType.toClass()) != null && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType, MimeType mimeType,
+                               Map<String, Object> hints) {
+        return fallback.decode(input, elementType, mimeType, hints);
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType, MimeType mimeType,
+                                     Map<String, Object> hints) {
+        // a JSON null is an empty body, as with the Jackson decoder
+        return DataBufferUtils.join(input, getMaxInMemorySize())
+                .mapNotNull(buffer -> decode(buffer, elementType, mimeType, hints));
+    }
+
+    @Override
+    public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints)
+            throws DecodingException {
+        try (JsonParser parser = JSON_FACTORY.createParser(buffer.asInputStream())) {
+            return JsonShape.of(targetType.toClass()).read(parser);
+        } catch (JsonProcessingException ex) {
+            throw new DecodingException("JSON decoding error: " + ex.getOriginalMessage(), ex);
+        } catch (IOException ex) {
+            throw new DecodingException("I/O error while parsing input stream", ex);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+}
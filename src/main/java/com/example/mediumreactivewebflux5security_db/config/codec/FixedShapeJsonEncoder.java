@@ -0,0 +1,76 @@
+package com.example.mediumreactivewebflux5security_db.config.codec;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>Writes the {@code AuthRequest}, {@code AuthResponse} and {@code Message} DTOs as JSON directly into a buffer of the
+ * response's {@link DataBufferFactory}, a pooled Netty buffer on the server, without going through Jackson databind.</p>
+ * <p>Constant bodies are serialized once at construction and recognized by identity, each response then only wraps the
+ * same bytes. They must be immutable, like {@code Message}.</p>
+ * <p>Streams of DTOs are written as a JSON array by the fallback encoder.</p>
+ */
+public class FixedShapeJsonEncoder extends AbstractEncoder<Object> {
+
+    private final Encoder<Object> fallback;
+    private final Map<Object, byte[]> constants = new IdentityHashMap<>();
+
+    /**
+     * @param fallback       the Jackson encoder that writes streams of DTOs
+     * @param constantBodies the DTO instances returned as is by every response, serialized once
+     */
+    public FixedShapeJsonEncoder(Encoder<Object> fallback, Collection<?> constantBodies) {
+        super(MediaType.APPLICATION_JSON);
+        this.fallback = fallback;
+        for (Object body : constantBodies) {
+            DataBuffer buffer = JsonShape.of(body.getClass()).write(body, DefaultDataBufferFactory.sharedInstance);
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            constants.put(body, bytes);
+        }
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return JsonShape.of(elementType.toClass()) != null && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                    .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+        return fallback.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        byte[] constant = constants.get(value);
+        if (constant != null) {
+            return bufferFactory.wrap(constant);
+        }
+        JsonShape<?> shape = JsonShape.of(value.getClass());
+        if (shape == null) {
+            return fallback.encodeValue(value, bufferFactory, valueType, mimeType, hints);
+        }
+        return shape.write(value, bufferFactory);
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.example.mediumreactivewebflux5security_db.config.codec;
+
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.Message;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <p>The JSON layout of a DTO made of string properties only, in the order Jackson writes them.</p>
+ * <p>The property names are encoded once, so writing a value only costs escaping its strings into a buffer allocated at its
+ * exact size, and reading one only a streaming pass with no databind.</p>
+ *
+ * @param <T> the DTO
+ */
+final class JsonShape<T> {
+
+    private static final Map<Class<?>, JsonShape<?>> SHAPES = Map.of(
+            AuthRequest.class, new JsonShape<>(AuthRequest.class,
+                    List.of("username", "password"),
+                    List.of(AuthRequest::getUsername, AuthRequest::getPassword),
+                    values -> new AuthRequest(values[0], values[1])),
+            AuthResponse.class, new JsonShape<>(AuthResponse.class,
+                    List.of("token", "refreshToken"),
+                    List.of(AuthResponse::getToken, AuthResponse::getRefreshToken),
+                    values -> new AuthResponse(values[0], values[1])),
+            Message.class, new JsonShape<>(Message.class,
+                    List.of("content"),
+                    List.of(Message::getContent),
+                    values -> new Message(values[0]))
+    );
+
+    private static final byte[] END = {'}'};
+
+    private final Class<T> type;
+    private final String[] names;
+    private final List<Function<T, String>> getters;
+    private final Function<String[], T> constructor;
+    /**
+     * {@code {"name":} for the first property and {@code ,"name":} for the others.
+     */
+    private final byte[][] prefixes;
+
+    private JsonShape(Class<T> type, List<String> names, List<Function<T, String>> getters, Function<String[], T> constructor) {
+        this.type = type;
+        this.names = names.toArray(String[]::new);
+        this.getters = getters;
+        this.constructor = constructor;
+        this.prefixes = new byte[this.names.length][];
+        for (int i = 0; i < this.names.length; i++) {
+            prefixes[i] = ((i == 0 ? "{\"" : ",\"") + this.names[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param type a class
+     * @return its shape, or {@code null} if it is not one of the fixed shape DTOs
+     */
+    static JsonShape<?> of(Class<?> type) {
+        return SHAPES.get(type);
+    }
+
+    /**
+     * @param value         an instance of the DTO
+     * @param bufferFactory allocates the buffer, pooled on Netty
+     * @return the JSON of the value
+     */
+    DataBuffer write(Object value, DataBufferFactory bufferFactory) {
+        T dto = type.cast(value);
+        int length = END.length;
+        for (int i = 0; i < prefixes.length; i++) {
+            length += prefixes[i].length + JsonStrings.encodedLength(getters.get(i).apply(dto));
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(length);
+        for (int i = 0; i < prefixes.length; i++) {
+            buffer.write(prefixes[i]);
+            JsonStrings.write(buffer, getters.get(i).apply(dto));
+        }
+        return buffer.write(END);
+    }
+
+    /**
+     * Reads the DTO the way Jackson databind does with Spring Boot's defaults: unknown properties are skipped, scalars are
+     * coerced to strings and anything after the object is ignored.
+     *
+     * @param parser a parser positioned before the value
+     * @return the DTO, or {@code null} for a JSON {@code null}
+     * @throws IOException if the input is not JSON or not an object of strings
+     */
+    T read(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object for " + type.getSimpleName() + " but got " + token);
+        }
+        String[] values = new String[names.length];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int index = indexOf(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (index < 0) {
+                parser.skipChildren();
+            } else if (value.isScalarValue()) {
+                values[index] = parser.getValueAsString();
+            } else {
+                throw new JsonParseException(parser, "Expected a string for " + type.getSimpleName() + "." + names[index] + " but got " + value);
+            }
+        }
+        return constructor.apply(values);
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
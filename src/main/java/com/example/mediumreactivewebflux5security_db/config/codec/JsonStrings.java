@@ -0,0 +1,129 @@
+package com.example.mediumreactivewebflux5security_db.config.codec;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes JSON string values straight into a {@link DataBuffer}, escaped exactly like the UTF-8 generator of Jackson does by
+ * default: quotes, backslashes and control characters, with the short forms for {@code \b \t \n \f \r} and upper case
+ * {@code \\u00XX} for the others. Non ASCII characters are written as UTF-8, except surrogates, paired or not, which are
+ * escaped one by one as upper case {@code \\uXXXX}.
+ */
+final class JsonStrings {
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+    private static final byte UNICODE_ESCAPE = 'u';
+
+    /**
+     * The character written after the backslash for the ASCII characters that need escaping, {@code 0} for the others.
+     */
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = UNICODE_ESCAPE;
+        }
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+    }
+
+    private JsonStrings() {
+    }
+
+    /**
+     * @param value the string, or {@code null}
+     * @return the number of bytes {@link #write(DataBuffer, String)} writes for it, used to allocate the buffer once
+     */
+    static int encodedLength(String value) {
+        if (value == null) {
+            return NULL.length;
+        }
+        int length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += ESCAPES[c] == 0 ? 1 : ESCAPES[c] == UNICODE_ESCAPE ? 6 : 2;
+            } else if (c < 0x800) {
+                length += 2;
+            } else {
+                length += Character.isSurrogate(c) ? 6 : 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes the string as a quoted JSON value, or {@code null}. The runs of ASCII characters without escapes, the whole
+     * string for a token, are copied by the buffer itself, which Netty buffers do without an intermediate array and within
+     * the capacity {@link #encodedLength(String)} reserved. Its UTF-8 writer would reserve three bytes per character instead.
+     */
+    static void write(DataBuffer buffer, String value) {
+        if (value == null) {
+            buffer.write(NULL);
+            return;
+        }
+        buffer.write((byte) '"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || ESCAPES[c] != 0) {
+                writeAscii(buffer, value, start, i);
+                if (c < 0x80) {
+                    writeEscape(buffer, c);
+                } else if (Character.isSurrogate(c)) {
+                    writeUnicodeEscape(buffer, c);
+                } else {
+                    writeUtf8(buffer, c);
+                }
+                start = i + 1;
+            }
+        }
+        writeAscii(buffer, value, start, value.length());
+        buffer.write((byte) '"');
+    }
+
+    private static void writeAscii(DataBuffer buffer, String value, int start, int end) {
+        if (start == 0 && end == value.length()) {
+            buffer.write(value, StandardCharsets.US_ASCII);
+        } else if (start < end) {
+            buffer.write(value.subSequence(start, end), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static void writeUtf8(DataBuffer buffer, char c) {
+        if (c < 0x800) {
+            buffer.write((byte) (0xC0 | c >> 6));
+        } else {
+            buffer.write((byte) (0xE0 | c >> 12));
+            buffer.write((byte) (0x80 | c >> 6 & 0x3F));
+        }
+        buffer.write((byte) (0x80 | c & 0x3F));
+    }
+
+    private static void writeEscape(DataBuffer buffer, char c) {
+        byte escape = ESCAPES[c];
+        if (escape == UNICODE_ESCAPE) {
+            writeUnicodeEscape(buffer, c);
+        } else {
+            buffer.write((byte) '\\');
+            buffer.write(escape);
+        }
+    }
+
+    private static void writeUnicodeEscape(DataBuffer buffer, char c) {
+        buffer.write((byte) '\\');
+        buffer.write(UNICODE_ESCAPE);
+        buffer.write(HEX[c >> 12]);
+        buffer.write(HEX[c >> 8 & 0xF]);
+        buffer.write(HEX[c >> 4 & 0xF]);
+        buffer.write(HEX[c & 0xF]);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import com.example.mediumreactivewebflux5security_db.config.security.Digests;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * <p>A bounded cache of already verified JWTs, keyed by the SHA-256 digest of the compact token.</p>
+ * <p>Clients send the same bearer token for its whole lifetime, so once the signature of a token has been verified
+ * we keep its {@link Claims} until the token's {@code exp} claim and skip the HMAC work on every later request. The
+ * cached claims are an {@link UnmodifiableClaims} copy, since every request sending the token reads the same instance.
+ * Only successfully parsed tokens are cached, an invalid token is re-checked (and rejected) every time.</p>
+ * <p>Its hit, miss and eviction counters are exported as the {@code jwtClaims} cache metrics.</p>
+ */
+@Component
+public class ClaimsCache implements MeterBinder {
+
+    @Value("${jwt.cache.maximumSize}")
+    private long maximumSize;
+    private Cache<ByteBuffer, Claims> cache;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiration())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached claims of the given token, verifying it with {@code parser} on a cache miss.
+     *
+     * @param token  the compact JWT
+     * @param parser verifies the token and returns its claims, any exception it throws is propagated and nothing is cached
+     * @return the claims of the token, read-only
+     */
+    public Claims get(String token, Function<String, Claims> parser) {
+        return cache.get(digest(token), key -> new UnmodifiableClaims(parser.apply(token)));
+    }
+
+    /**
+     * @return the hit, miss and eviction counters of the cache since startup
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the approximate number of tokens currently cached
+     */
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "jwtClaims");
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(Digests.sha256(token));
+    }
+
+    /**
+     * Expires every entry at the {@code exp} claim of its token, the parser has already rejected expired tokens.
+     */
+    private static class UntilTokenExpiration implements Expiry<ByteBuffer, Claims> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return 0;
+            }
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiration.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+}
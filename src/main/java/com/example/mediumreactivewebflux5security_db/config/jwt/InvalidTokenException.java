@@ -0,0 +1,27 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import lombok.Getter;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * <p>Thrown, or more often returned through {@code Mono.error}, when a bearer token is rejected.</p>
+ * <p>Rejections are frequent under scanner or credential stuffing traffic and carry nothing a stack trace would help with,
+ * so this exception does not fill one in. A new instance is still created per rejection, since a shared one would collect
+ * suppressed exceptions from every request it passes through.</p>
+ */
+@Getter
+public class InvalidTokenException extends AuthenticationException {
+
+    private final TokenRejection rejection;
+
+    public InvalidTokenException(TokenRejection rejection) {
+        super(rejection.name());
+        this.rejection = rejection;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -1,9 +1,17 @@
 package com.example.mediumreactivewebflux5security_db.config.jwt;
 
+import com.example.mediumreactivewebflux5security_db.config.jwt.SigningKeyring.SigningKey;
+import com.example.mediumreactivewebflux5security_db.model.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -12,36 +20,57 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.OptionalInt;
 
 /**
  * <span style='color:white'>Step 3: Provides utility methods for working with JSON Web Tokens (JWTs).</span>
  */
 @Component
+@RequiredArgsConstructor
 public class JWTUtil {
 
-    @Value("${jwt.secret.key}")
-    private String secret;
+    /**
+     * Claim holding the {@link Role#maskOf(java.util.Collection) role bitmask} of the user when roles are embedded in tokens.
+     */
+    public static final String ROLES_CLAIM = "rol";
+    /**
+     * Claim holding the id of the refresh session an access token was issued for.
+     */
+    public static final String SESSION_CLAIM = "sid";
+
+    private final ClaimsCache claimsCache;
+    private final SigningKeyring signingKeyring;
+
     @Value("${jwt.secret.expirationTime}")
     private String expirationTime;
-    private Key key;
+    @Value("${jwt.rolesInToken.enabled}")
+    private boolean rolesInToken;
+    private JwtParser jwtParser;
+    private JwtPreValidator preValidator;
 
     @PostConstruct
     public void init() {
-        this.key = Keys.hmacShaKeyFor(secret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new KeyringResolver())
+                .build();
+        this.preValidator = new JwtPreValidator(signingKeyring);
     }
 
     /**
      * Extracts all claims from a JWT.
+     * <p>A token whose signature has already been verified is served from the {@link ClaimsCache} until it expires.
+     * Before that, and before any signature check on a cache miss, the {@link JwtPreValidator} rejects tokens that cannot be valid.</p>
      *
      * @param token the JWT to extract claims from
      * @return a Claims object containing all claims from the JWT
+     * @throws InvalidTokenException if the token is rejected, this is the only exception thrown for a bad token
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        TokenRejection rejection = preValidator.checkStructure(token);
+        if (rejection != null) {
+            throw new InvalidTokenException(rejection);
+        }
+        return claimsCache.get(token, this::parseClaims);
     }
 
     /**
@@ -55,17 +84,84 @@ public class JWTUtil {
     }
 
     /**
-     * Generates a JWT for the given user details.
+     * Extracts the role bitmask embedded in a JWT.
+     *
+     * @param claims the verified claims of the JWT
+     * @return the embedded {@link Role#maskOf(java.util.Collection) role bitmask}, or an empty {@link OptionalInt} if the token
+     * carries none or roles in token are disabled
+     */
+    public OptionalInt extractRoleMask(Claims claims) {
+        if (!rolesInToken) {
+            return OptionalInt.empty();
+        }
+        Integer mask = claims.get(ROLES_CLAIM, Integer.class);
+        return mask == null ? OptionalInt.empty() : OptionalInt.of(mask);
+    }
+
+    /**
+     * Extracts the refresh session of a JWT.
+     *
+     * @param claims the verified claims of the JWT
+     * @return the {@link #SESSION_CLAIM session id}, or {@code null} if the token was issued outside of a session
+     */
+    public String extractSessionId(Claims claims) {
+        return claims.get(SESSION_CLAIM, String.class);
+    }
+
+    /**
+     * Generates a JWT for the given user details, outside of any refresh session.
      *
      * @param userDetails the user details to generate the JWT for
      * @return a JWT for the given user details
      */
     public String generateToken(UserDetails userDetails) {
-        return doGenerateToken(new HashMap<>(), userDetails.getUsername());
+        return generateToken(userDetails, null);
+    }
+
+    /**
+     * Generates a JWT for the given user details.
+     * <p>When {@code jwt.rolesInToken.enabled} is set, the roles of the user are embedded in the {@link #ROLES_CLAIM} claim.</p>
+     *
+     * @param userDetails the user details to generate the JWT for
+     * @param sessionId   the refresh session the token is issued for, put in the {@link #SESSION_CLAIM} claim, or {@code null}
+     * @return a JWT for the given user details
+     */
+    public String generateToken(UserDetails userDetails, String sessionId) {
+        Map<String, Object> claims = new HashMap<>();
+        if (sessionId != null) {
+            claims.put(SESSION_CLAIM, sessionId);
+        }
+        if (rolesInToken) {
+            claims.put(ROLES_CLAIM, Role.maskOf(userDetails.getAuthorities()));
+        }
+        return doGenerateToken(claims, userDetails.getUsername());
+    }
+
+    /**
+     * Verifies the signature and expiration of a JWT and returns its claims, bypassing the cache.
+     *
+     * @param token the JWT to parse
+     * @return a Claims object containing all claims from the JWT
+     * @throws InvalidTokenException if the token is rejected by the {@link JwtPreValidator} or by {@code jjwt}
+     */
+    private Claims parseClaims(String token) {
+        TokenRejection rejection = preValidator.checkContent(token);
+        if (rejection != null) {
+            throw new InvalidTokenException(rejection);
+        }
+        try {
+            return jwtParser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            throw new InvalidTokenException(TokenRejection.EXPIRED);
+        } catch (SignatureException e) {
+            throw new InvalidTokenException(TokenRejection.INVALID_SIGNATURE);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException(TokenRejection.MALFORMED);
+        }
     }
 
     /**
-     * Generates a JWT for the given claims and username.
+     * Generates a JWT for the given claims and username, signed with the current key of the {@link SigningKeyring}.
      *
      * @param claims   the claims to include in the JWT
      * @param username the username to include in the JWT
@@ -76,13 +172,30 @@ public class JWTUtil {
         final Date createdDate = new Date();
         final Date expirationDate = new Date(createdDate.getTime() + expirationTimeLong * 1000);
 
+        SigningKey signingKey = signingKeyring.current();
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.kid())
                 .setClaims(claims)
                 .setSubject(username)
                 .setIssuedAt(createdDate)
                 .setExpiration(expirationDate)
-                .signWith(key)
+                .signWith(signingKey.signingKey(), signingKey.algorithm())
                 .compact();
     }
 
+    /**
+     * Picks the verification key by the {@code kid} header of the token.
+     */
+    private class KeyringResolver extends SigningKeyResolverAdapter {
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            SigningKey signingKey = signingKeyring.find(header.getKeyId());
+            if (signingKey == null) {
+                throw new SignatureException("Unknown key id " + header.getKeyId());
+            }
+            return signingKey.verificationKey();
+        }
+    }
+
 }
@@ -0,0 +1,154 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * <p>Rejects tokens that cannot possibly verify before any HMAC or {@code jjwt} work is done.</p>
+ * <p>The checks are split in two, from cheapest to most expensive:</p>
+ * <ul>
+ *     <li>{@link #checkStructure(String)}: length, three non empty segments and the base64url alphabet, a single pass over the
+ *     characters without allocating.</li>
+ *     <li>{@link #checkContent(String)}: decodes the header and payload and streams through them to check that the {@code kid}
+ *     header names a key of the {@link SigningKeyring}, that {@code alg} is the algorithm of that key, and the {@code exp} claim.
+ *     Only tokens missing the claims cache get here.</li>
+ * </ul>
+ * <p>Both return {@code null} when the token may be valid, a passing token is still fully verified by {@code jjwt}.</p>
+ */
+final class JwtPreValidator {
+
+    /**
+     * Far longer than any token we issue, anything longer is not worth hashing.
+     */
+    static final int MAX_TOKEN_LENGTH = 4096;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SigningKeyring signingKeyring;
+
+    /**
+     * @param signingKeyring the keys tokens may be signed with
+     */
+    JwtPreValidator(SigningKeyring signingKeyring) {
+        this.signingKeyring = signingKeyring;
+    }
+
+    /**
+     * @param token the compact JWT
+     * @return why the token is rejected, or {@code null} if its shape is that of a signed JWT
+     */
+    TokenRejection checkStructure(String token) {
+        int length = token.length();
+        if (length == 0 || length > MAX_TOKEN_LENGTH) {
+            return TokenRejection.MALFORMED;
+        }
+        int dots = 0;
+        int segmentStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                if (i == segmentStart || ++dots > 2) {
+                    return TokenRejection.MALFORMED;
+                }
+                segmentStart = i + 1;
+            } else if (!isBase64Url(c)) {
+                return TokenRejection.INVALID_ENCODING;
+            }
+        }
+        return dots == 2 && segmentStart < length ? null : TokenRejection.MALFORMED;
+    }
+
+    /**
+     * Expects a token that passed {@link #checkStructure(String)}.
+     *
+     * @param token the compact JWT
+     * @return why the token is rejected, or {@code null} if it names a known key, is signed with its algorithm and is not expired
+     */
+    TokenRejection checkContent(String token) {
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = token.indexOf('.', headerEnd + 1);
+        try {
+            String[] header = readStrings(decode(token, 0, headerEnd), "alg", "kid");
+            SigningKeyring.SigningKey key = signingKeyring.find(header[1]);
+            if (key == null) {
+                return TokenRejection.UNKNOWN_KEY;
+            }
+            if (!key.algorithm().getValue().equals(header[0])) {
+                return TokenRejection.UNSUPPORTED_ALGORITHM;
+            }
+            long exp = readLong(decode(token, headerEnd + 1, payloadEnd), "exp");
+            if (exp != Long.MIN_VALUE && exp * 1000 <= System.currentTimeMillis()) {
+                return TokenRejection.EXPIRED;
+            }
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            return TokenRejection.INVALID_ENCODING;
+        }
+    }
+
+    private static boolean isBase64Url(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    private static byte[] decode(String token, int start, int end) {
+        return DECODER.decode(token.substring(start, end));
+    }
+
+    /**
+     * @return the top level string fields {@code first} and {@code second} of the JSON object, each {@code null} if it is absent
+     * or not a string
+     */
+    private static String[] readStrings(byte[] json, String first, String second) throws IOException {
+        String[] values = new String[2];
+        try (JsonParser parser = openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && name.equals(first)) {
+                    values[0] = parser.getText();
+                } else if (value == JsonToken.VALUE_STRING && name.equals(second)) {
+                    values[1] = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return values;
+        }
+    }
+
+    /**
+     * @return the top level numeric field {@code name} of the JSON object, or {@link Long#MIN_VALUE} if it is absent
+     * @throws IOException if the field is present but not a number
+     */
+    private static long readLong(byte[] json, String name) throws IOException {
+        try (JsonParser parser = openObject(json)) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean match = name.equals(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (match) {
+                    if (!value.isNumeric()) {
+                        throw new IOException(name + " is not a number");
+                    }
+                    return parser.getLongValue();
+                }
+                parser.skipChildren();
+            }
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static JsonParser openObject(byte[] json) throws IOException {
+        JsonParser parser = JSON_FACTORY.createParser(json);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IOException("not a JSON object");
+        }
+        return parser;
+    }
+
+}
@@ -0,0 +1,284 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import com.example.mediumreactivewebflux5security_db.config.security.Digests;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>The keys tokens are signed and verified with, each identified by the {@code kid} header of the tokens it signs.</p>
+ * <p>With {@code jwt.signing.algorithm} set to an {@code HS*} algorithm, there is a single key derived from {@code jwt.secret.key}
+ * and nothing is published, a shared secret must not be. With {@code RS*}, {@code ES*} or {@code PS*}, the key pairs are read from
+ * the PEM files matching {@code jwt.signing.keyLocation}, the same on every instance, so any instance verifies the tokens of the
+ * others and tokens survive restarts:</p>
+ * <ul>
+ *     <li>each file holds a PKCS#8 {@code PRIVATE KEY} and its X.509 {@code PUBLIC KEY}, its name without {@code .pem} is the
+ *     {@code kid};</li>
+ *     <li>{@code jwt.signing.activeKey} signs, the last file by name if it is empty, every key is published and verifies;</li>
+ *     <li>a key is rotated by first deploying its file everywhere, then making it active once verifiers have fetched the JWKS,
+ *     and removing the old file once the tokens it signed have expired.</li>
+ * </ul>
+ * <p>For development, {@code jwt.signing.generateKeys} generates the key pairs in memory instead and rotates them every
+ * {@code jwt.signing.rotationInterval} seconds, publishing the next key one interval before it signs anything and keeping a
+ * retired key until every token it signed has expired. Those keys are not shared between instances and are lost on restart.</p>
+ * <p>Verification finds the key with a single map lookup.</p>
+ * <p>EdDSA is not offered, jjwt 0.11 cannot sign with it.</p>
+ */
+@Slf4j
+@Component
+public class SigningKeyring {
+
+    /**
+     * A key tokens are signed or verified with.
+     *
+     * @param kid             the {@code kid} header of the tokens it signs
+     * @param algorithm       the algorithm it signs with
+     * @param signingKey      the secret or private key
+     * @param verificationKey the secret or public key
+     */
+    public record SigningKey(String kid, SignatureAlgorithm algorithm, Key signingKey, Key verificationKey) {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final Pattern PEM_BLOCK = Pattern.compile("-----BEGIN ([A-Z ]+)-----([^-]+)-----END \\1-----");
+
+    @Value("${jwt.secret.key}")
+    private String secret;
+    @Value("${jwt.secret.expirationTime}")
+    private long expirationTime;
+    @Value("${jwt.signing.algorithm}")
+    private String algorithmName;
+    @Value("${jwt.signing.keyLocation}")
+    private String keyLocation;
+    @Value("${jwt.signing.activeKey}")
+    private String activeKey;
+    @Value("${jwt.signing.generateKeys}")
+    private boolean generateKeys;
+
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+    private final Map<String, Instant> retiredAt = new ConcurrentHashMap<>();
+    private SignatureAlgorithm algorithm;
+    private volatile SigningKey current;
+    private volatile SigningKey next;
+    private volatile SigningKey legacy;
+    private volatile String jwks;
+
+    @PostConstruct
+    public void init() {
+        this.algorithm = SignatureAlgorithm.forName(algorithmName);
+        if (algorithm.isHmac()) {
+            Key key = Keys.hmacShaKeyFor(secret.getBytes());
+            this.current = new SigningKey(secretKid(), algorithm, key, key);
+            this.legacy = current;
+            keys.put(current.kid(), current);
+        } else if ((algorithm.isRsa() || algorithm.isEllipticCurve()) && StringUtils.hasText(keyLocation)) {
+            this.current = load();
+        } else if (algorithm.isRsa() || algorithm.isEllipticCurve()) {
+            if (!generateKeys) {
+                throw new IllegalStateException("jwt.signing.keyLocation must point to the " + algorithmName
+                        + " key pairs, or jwt.signing.generateKeys be set to generate keys for development");
+            }
+            log.warn("Signing tokens with generated keys, they are only valid on this instance and until it restarts");
+            this.current = generate();
+            this.next = generate();
+            keys.put(current.kid(), current);
+            keys.put(next.kid(), next);
+        } else {
+            throw new IllegalStateException("Unsupported jwt.signing.algorithm " + algorithmName);
+        }
+        this.jwks = toJwks();
+    }
+
+    /**
+     * @return the key new tokens are signed with
+     */
+    public SigningKey current() {
+        return current;
+    }
+
+    /**
+     * @param kid the {@code kid} header of a token, {@code null} for tokens issued before keys had ids
+     * @return the key that token was signed with, or {@code null} if it is unknown or retired for good
+     */
+    public SigningKey find(String kid) {
+        return kid == null ? legacy : keys.get(kid);
+    }
+
+    /**
+     * @return the JSON Web Key Set of the public keys that currently sign or verify tokens, built once per rotation
+     */
+    public String jwks() {
+        return jwks;
+    }
+
+    /**
+     * Promotes the published next key to signing, publishes a new next key and drops the retired keys whose tokens have all expired.
+     * Does nothing unless the keys are generated, HMAC and loaded keys are rotated by redeploying.
+     */
+    @Scheduled(
+            initialDelayString = "${jwt.signing.rotationInterval}",
+            fixedDelayString = "${jwt.signing.rotationInterval}",
+            timeUnit = TimeUnit.SECONDS
+    )
+    public void rotate() {
+        if (next == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        retiredAt.put(current.kid(), now);
+        SigningKey promoted = next;
+        SigningKey generated = generate();
+        keys.put(generated.kid(), generated);
+        this.next = generated;
+        this.current = promoted;
+        retiredAt.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().plusSeconds(expirationTime).isBefore(now);
+            if (expired) {
+                keys.remove(entry.getKey());
+            }
+            return expired;
+        });
+        this.jwks = toJwks();
+        log.info("Rotated the token signing key to {}, {} keys published", current.kid(), keys.size());
+    }
+
+    /**
+     * Reads every key pair at {@code keyLocation} and returns the active one.
+     */
+    private SigningKey load() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(keyLocation);
+            Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+            SigningKey last = null;
+            for (Resource resource : resources) {
+                last = read(resource);
+                keys.put(last.kid(), last);
+            }
+            SigningKey active = StringUtils.hasText(activeKey) ? keys.get(activeKey) : last;
+            if (active == null) {
+                throw new IllegalStateException("No signing key " + (StringUtils.hasText(activeKey) ? activeKey + " " : "") + "at " + keyLocation);
+            }
+            log.info("Signing tokens with {}, {} keys loaded from {}", active.kid(), keys.size(), keyLocation);
+            return active;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the signing keys at " + keyLocation, e);
+        }
+    }
+
+    private SigningKey read(Resource resource) throws IOException {
+        String kid = StringUtils.stripFilenameExtension(resource.getFilename());
+        Map<String, byte[]> blocks = new HashMap<>();
+        Matcher matcher = PEM_BLOCK.matcher(resource.getContentAsString(StandardCharsets.US_ASCII));
+        while (matcher.find()) {
+            blocks.put(matcher.group(1), Base64.getMimeDecoder().decode(matcher.group(2)));
+        }
+        if (!blocks.containsKey("PRIVATE KEY") || !blocks.containsKey("PUBLIC KEY")) {
+            throw new IllegalStateException(resource + " must hold a PRIVATE KEY and a PUBLIC KEY");
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(algorithm.isRsa() ? "RSA" : "EC");
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(blocks.get("PRIVATE KEY")));
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(blocks.get("PUBLIC KEY")));
+            algorithm.assertValidSigningKey(privateKey);
+            algorithm.assertValidVerificationKey(publicKey);
+            return new SigningKey(kid, algorithm, privateKey, publicKey);
+        } catch (GeneralSecurityException | RuntimeException e) {
+            throw new IllegalStateException(resource + " does not hold a " + algorithmName + " key pair", e);
+        }
+    }
+
+    private SigningKey generate() {
+        KeyPair keyPair = Keys.keyPairFor(algorithm);
+        return new SigningKey(UUID.randomUUID().toString(), algorithm, keyPair.getPrivate(), keyPair.getPublic());
+    }
+
+    private String secretKid() {
+        return HexFormat.of().formatHex(Digests.sha256(secret), 0, 8);
+    }
+
+    private String toJwks() {
+        List<Map<String, String>> jwkList = new ArrayList<>();
+        if (!algorithm.isHmac()) {
+            keys.values().forEach(key -> jwkList.add(toJwk(key)));
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(Map.of("keys", jwkList));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the JWKS", e);
+        }
+    }
+
+    private static Map<String, String> toJwk(SigningKey key) {
+        Map<String, String> jwk = new LinkedHashMap<>();
+        if (key.verificationKey() instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", base64Url(rsa.getModulus(), 0));
+            jwk.put("e", base64Url(rsa.getPublicExponent(), 0));
+        } else if (key.verificationKey() instanceof ECPublicKey ec) {
+            int size = (ec.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-" + ec.getParams().getCurve().getField().getFieldSize());
+            jwk.put("x", base64Url(ec.getW().getAffineX(), size));
+            jwk.put("y", base64Url(ec.getW().getAffineY(), size));
+        }
+        jwk.put("kid", key.kid());
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm().getValue());
+        return jwk;
+    }
+
+    /**
+     * @param length the fixed length to left pad to, or 0 for the minimal unsigned encoding
+     */
+    private static String base64Url(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+}
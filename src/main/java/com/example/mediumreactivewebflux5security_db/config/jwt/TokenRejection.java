@@ -0,0 +1,45 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+/**
+ * Why a bearer token was rejected.
+ */
+public enum TokenRejection {
+
+    /**
+     * Not three dot separated segments, empty segments or longer than any token we issue.
+     */
+    MALFORMED,
+    /**
+     * A segment is not base64url, or the header or payload is not a JSON object.
+     */
+    INVALID_ENCODING,
+    /**
+     * The {@code kid} header names no key of the {@link SigningKeyring}, or a key retired for good.
+     */
+    UNKNOWN_KEY,
+    /**
+     * The header names an algorithm other than the one of its key, {@code none} included.
+     */
+    UNSUPPORTED_ALGORITHM,
+    /**
+     * The {@code exp} claim is in the past.
+     */
+    EXPIRED,
+    /**
+     * The signature does not match the header and payload.
+     */
+    INVALID_SIGNATURE,
+    /**
+     * The token is valid but its subject no longer exists.
+     */
+    UNKNOWN_USER,
+    /**
+     * The token is valid but its refresh session was logged out or revoked.
+     */
+    REVOKED_SESSION,
+    /**
+     * The token is valid but its user is disabled, locked, or its account or credentials expired.
+     */
+    INACTIVE_ACCOUNT
+
+}
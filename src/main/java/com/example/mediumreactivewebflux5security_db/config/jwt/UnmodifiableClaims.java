@@ -0,0 +1,118 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.impl.DefaultClaims;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>A read-only copy of the claims of a verified token, shared by every request that sends the token while it is in the
+ * {@link ClaimsCache}.</p>
+ * <p>The setters and the map mutators throw {@link UnsupportedOperationException}, so one request cannot change the subject,
+ * roles or session another request reads.</p>
+ */
+final class UnmodifiableClaims extends AbstractMap<String, Object> implements Claims {
+
+    private final Claims claims;
+    private final Map<String, Object> view;
+
+    UnmodifiableClaims(Claims claims) {
+        this.claims = new DefaultClaims(claims);
+        this.view = Collections.unmodifiableMap(this.claims);
+    }
+
+    @Override
+    public String getIssuer() {
+        return claims.getIssuer();
+    }
+
+    @Override
+    public String getSubject() {
+        return claims.getSubject();
+    }
+
+    @Override
+    public String getAudience() {
+        return claims.getAudience();
+    }
+
+    @Override
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return claims.getNotBefore();
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return claims.getIssuedAt();
+    }
+
+    @Override
+    public String getId() {
+        return claims.getId();
+    }
+
+    @Override
+    public <T> T get(String claimName, Class<T> requiredType) {
+        return claims.get(claimName, requiredType);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return view.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return view.containsKey(key);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return view.entrySet();
+    }
+
+    @Override
+    public Claims setIssuer(String iss) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Claims setSubject(String sub) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Claims setAudience(String aud) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Claims setExpiration(Date exp) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Claims setNotBefore(Date nbf) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Claims setIssuedAt(Date iat) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Claims setId(String jti) {
+        throw new UnsupportedOperationException();
+    }
+
+}
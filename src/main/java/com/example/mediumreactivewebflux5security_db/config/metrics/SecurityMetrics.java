@@ -0,0 +1,162 @@
+package com.example.mediumreactivewebflux5security_db.config.metrics;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Timers and counters for each stage of the security filter chain, exported through the {@code /actuator/prometheus} endpoint.</p>
+ * <ul>
+ *     <li>{@code auth.context.load}: the whole {@code SecurityContextRepository.load}, by outcome.</li>
+ *     <li>{@code auth.token.verification}: JWT verification including the claims cache, by outcome (valid, expired, invalid_signature, malformed).</li>
+ *     <li>{@code auth.token.rejected}: rejected bearer tokens, by {@link TokenRejection reason}.</li>
+ *     <li>{@code auth.roles.source}: whether the roles of a request came from the token or from a user lookup.</li>
+ *     <li>{@code auth.user.lookup}: the user details lookup, by outcome.</li>
+ *     <li>{@code auth.access.denied}: 401 and 403 responses, by status and roles of the caller.</li>
+ *     <li>{@code auth.login.throttled}: login attempts rejected with 429, by the key that was over its limit (address or username) or {@code lockout} for a locked account.</li>
+ * </ul>
+ * <p>Every tag has a small fixed set of values. The meters recorded on every request are created upfront, so recording them is a plain
+ * lookup and does not allocate.</p>
+ */
+@Component
+public class SecurityMetrics {
+
+    /**
+     * The outcome of verifying a JWT.
+     */
+    public enum TokenOutcome {
+        VALID, EXPIRED, INVALID_SIGNATURE, MALFORMED;
+
+        /**
+         * @param rejection why verifying a token failed
+         * @return the outcome the rejection stands for
+         */
+        public static TokenOutcome of(TokenRejection rejection) {
+            return switch (rejection) {
+                case EXPIRED -> EXPIRED;
+                case INVALID_SIGNATURE, UNKNOWN_KEY -> INVALID_SIGNATURE;
+                default -> MALFORMED;
+            };
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<TokenOutcome, Timer> tokenVerification = new EnumMap<>(TokenOutcome.class);
+    private final Map<TokenRejection, Counter> tokenRejections = new EnumMap<>(TokenRejection.class);
+    private final Counter rolesFromToken;
+    private final Counter rolesFromLookup;
+    private final Timer userLookupFound;
+    private final Timer userLookupNotFound;
+    private final Timer userLookupFailed;
+    private final Timer contextLoadAuthenticated;
+    private final Timer contextLoadAnonymous;
+    private final Timer contextLoadFailed;
+
+    public SecurityMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (TokenOutcome outcome : TokenOutcome.values()) {
+            tokenVerification.put(outcome, timer("auth.token.verification", outcome.name().toLowerCase()));
+        }
+        for (TokenRejection rejection : TokenRejection.values()) {
+            tokenRejections.put(rejection, registry.counter("auth.token.rejected", "reason", rejection.name().toLowerCase()));
+        }
+        this.rolesFromToken = registry.counter("auth.roles.source", "source", "token");
+        this.rolesFromLookup = registry.counter("auth.roles.source", "source", "lookup");
+        this.userLookupFound = timer("auth.user.lookup", "found");
+        this.userLookupNotFound = timer("auth.user.lookup", "not_found");
+        this.userLookupFailed = timer("auth.user.lookup", "error");
+        this.contextLoadAuthenticated = timer("auth.context.load", "authenticated");
+        this.contextLoadAnonymous = timer("auth.context.load", "anonymous");
+        this.contextLoadFailed = timer("auth.context.load", "error");
+    }
+
+    /**
+     * @param outcome       the outcome of the verification
+     * @param durationNanos how long the verification took
+     */
+    public void recordTokenVerification(TokenOutcome outcome, long durationNanos) {
+        tokenVerification.get(outcome).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param rejection why a bearer token was rejected
+     */
+    public void recordTokenRejection(TokenRejection rejection) {
+        tokenRejections.get(rejection).increment();
+    }
+
+    /**
+     * @param fromToken whether the roles were taken from the token rather than looked up
+     */
+    public void recordRolesSource(boolean fromToken) {
+        (fromToken ? rolesFromToken : rolesFromLookup).increment();
+    }
+
+    /**
+     * @param lookup a user details lookup
+     * @return the same lookup, timed from subscription until it completes
+     */
+    public <T> Mono<T> timeUserLookup(Mono<T> lookup) {
+        return timed(lookup, userLookupFound, userLookupNotFound, userLookupFailed);
+    }
+
+    /**
+     * @param load the loading of a security context
+     * @return the same load, timed from subscription until it completes
+     */
+    public <T> Mono<T> timeContextLoad(Mono<T> load) {
+        return timed(load, contextLoadAuthenticated, contextLoadAnonymous, contextLoadFailed);
+    }
+
+    /**
+     * @param status      the status returned to the caller, 401 or 403
+     * @param authorities the authorities of the caller, empty when unauthenticated
+     */
+    public void recordAccessDenied(HttpStatus status, Collection<? extends GrantedAuthority> authorities) {
+        registry.counter("auth.access.denied", "status", String.valueOf(status.value()), "roles", rolesTag(authorities)).increment();
+    }
+
+    /**
+     * @param key what the exhausted limit was keyed by, {@code address} or {@code username}, or {@code lockout} for a locked account
+     */
+    public void recordLoginThrottled(String key) {
+        registry.counter("auth.login.throttled", "key", key).increment();
+    }
+
+    private Timer timer(String name, String outcome) {
+        return Timer.builder(name).tag("outcome", outcome).register(registry);
+    }
+
+    private static <T> Mono<T> timed(Mono<T> mono, Timer valued, Timer empty, Timer failed) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono
+                    .doOnSuccess(value -> (value != null ? valued : empty).record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(exception -> failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private static String rolesTag(Collection<? extends GrantedAuthority> authorities) {
+        Set<Role> roles = Role.fromMask(Role.maskOf(authorities));
+        if (roles.isEmpty()) {
+            return "none";
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        roles.forEach(role -> joiner.add(role.name()));
+        return joiner.toString();
+    }
+
+}
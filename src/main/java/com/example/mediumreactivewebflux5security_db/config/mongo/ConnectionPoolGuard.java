@@ -0,0 +1,87 @@
+package com.example.mediumreactivewebflux5security_db.config.mongo;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Counts the queries waiting for a connection of the MongoDB pools, across all servers, and fails the guarded lookups
+ * immediately with a {@link ConnectionPoolSaturatedException} once {@code mongo.pool.maxWaitQueueSize} of them wait.</p>
+ * <p>The driver has no bound on its wait queue, only on the time spent in it. During a login storm every request would
+ * queue for up to {@code mongo.pool.maxWaitMillis} before failing, holding its connection to the client all along. Rejected
+ * lookups are counted in {@code mongodb.driver.pool.rejected}, next to the driver's own pool metrics.</p>
+ */
+@Component
+public class ConnectionPoolGuard implements ConnectionPoolListener {
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+    private final int maxWaitQueueSize;
+
+    /**
+     * @param registry         the registry of the rejection counter
+     * @param maxWaitQueueSize the waiting queries beyond which guarded lookups are rejected, {@code 0} disables the limit
+     */
+    public ConnectionPoolGuard(MeterRegistry registry, @Value("${mongo.pool.maxWaitQueueSize}") int maxWaitQueueSize) {
+        this.rejected = registry.counter("mongodb.driver.pool.rejected");
+        this.maxWaitQueueSize = maxWaitQueueSize;
+    }
+
+    /**
+     * @param lookup a query that needs a pooled connection
+     * @return the lookup, or a {@link Mono} failing with a {@link ConnectionPoolSaturatedException} if the wait queue is full when
+     * it is subscribed to
+     */
+    public <T> Mono<T> guard(Mono<T> lookup) {
+        return Mono.defer(() -> isSaturated() ? Mono.error(ConnectionPoolSaturatedException.INSTANCE) : lookup);
+    }
+
+    /**
+     * @param lookup a query that needs a pooled connection
+     * @return the lookup, or a {@link Flux} failing with a {@link ConnectionPoolSaturatedException} if the wait queue is full when
+     * it is subscribed to
+     */
+    public <T> Flux<T> guard(Flux<T> lookup) {
+        return Flux.defer(() -> isSaturated() ? Flux.error(ConnectionPoolSaturatedException.INSTANCE) : lookup);
+    }
+
+    /**
+     * @return the queries currently waiting for a connection
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    private boolean isSaturated() {
+        if (maxWaitQueueSize > 0 && waiting.get() >= maxWaitQueueSize) {
+            rejected.increment();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waiting.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waiting.decrementAndGet();
+    }
+
+}
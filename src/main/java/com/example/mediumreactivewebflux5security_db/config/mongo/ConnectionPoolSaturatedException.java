@@ -0,0 +1,15 @@
+package com.example.mediumreactivewebflux5security_db.config.mongo;
+
+/**
+ * Signals that too many queries already wait for a MongoDB connection and the request should be retried later.
+ * <p>It is raised under load, so it is a shared instance without a stack trace.</p>
+ */
+public class ConnectionPoolSaturatedException extends RuntimeException {
+
+    static final ConnectionPoolSaturatedException INSTANCE = new ConnectionPoolSaturatedException();
+
+    private ConnectionPoolSaturatedException() {
+        super("MongoDB connection pool wait queue is full", null, false, false);
+    }
+
+}
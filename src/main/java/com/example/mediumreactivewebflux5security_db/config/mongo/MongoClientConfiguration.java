@@ -0,0 +1,84 @@
+package com.example.mediumreactivewebflux5security_db.config.mongo;
+
+import com.mongodb.ReadPreference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Sizes the connection pools and sets the timeouts of the reactive MongoDB client, which otherwise keeps the driver's
+ * defaults whatever the load: 100 connections per server and a query waiting up to two minutes for one. The settings are
+ * applied after those of {@code spring.data.mongodb.uri} and take precedence over the same options in the URI.</p>
+ * <p>The pool metrics ({@code mongodb.driver.pool.size}, {@code .checkedout} and {@code .waitqueuesize}, per server) are
+ * exported by Boot's own listener, this configuration adds the {@link ConnectionPoolGuard} next to it.</p>
+ */
+@Configuration
+public class MongoClientConfiguration {
+
+    /**
+     * The lowest {@code maxStalenessSeconds} MongoDB accepts: the heartbeat frequency plus the idle write period of 10 seconds.
+     */
+    static final long MIN_MAX_STALENESS_SECONDS = 90;
+
+    /**
+     * @param connectionPoolGuard   the listener counting the queries waiting for a connection
+     * @param maxSize               the connections per server
+     * @param minSize               the connections per server kept open even when idle
+     * @param maxConnecting         the connections per server being established at once
+     * @param maxWaitMillis         how long a query waits for a pooled connection before it fails
+     * @param maxIdleSeconds        how long a pooled connection stays open without being used
+     * @param connectMillis         how long opening a connection may take
+     * @param readMillis            how long a query may wait for its reply, {@code 0} for no limit
+     * @param serverSelectionMillis how long a query waits for a suitable server, a primary for writes
+     * @return the MongoClientSettingsBuilderCustomizer bean
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoClientSettingsCustomizer(
+            ConnectionPoolGuard connectionPoolGuard,
+            @Value("${mongo.pool.maxSize}") int maxSize,
+            @Value("${mongo.pool.minSize}") int minSize,
+            @Value("${mongo.pool.maxConnecting}") int maxConnecting,
+            @Value("${mongo.pool.maxWaitMillis}") long maxWaitMillis,
+            @Value("${mongo.pool.maxIdleSeconds}") long maxIdleSeconds,
+            @Value("${mongo.timeouts.connectMillis}") int connectMillis,
+            @Value("${mongo.timeouts.readMillis}") int readMillis,
+            @Value("${mongo.timeouts.serverSelectionMillis}") long serverSelectionMillis) {
+        return builder -> builder
+                .applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(maxSize)
+                        .minSize(minSize)
+                        .maxConnecting(maxConnecting)
+                        .maxWaitTime(maxWaitMillis, TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(maxIdleSeconds, TimeUnit.SECONDS)
+                        .addConnectionPoolListener(connectionPoolGuard))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(connectMillis, TimeUnit.MILLISECONDS)
+                        .readTimeout(readMillis, TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(serverSelectionMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param mode                the read preference name: {@code primary}, {@code primaryPreferred}, {@code secondary},
+     *                            {@code secondaryPreferred} or {@code nearest}
+     * @param maxStalenessSeconds how far behind the primary a secondary may be to serve a read, at least 90 as required by
+     *                            MongoDB, {@code 0} for no bound
+     * @return the read preference
+     * @throws IllegalArgumentException if the bound is below 90 seconds, or set with {@code primary}, which the server would
+     *                                  only reject on the first read
+     */
+    public static ReadPreference readPreference(String mode, long maxStalenessSeconds) {
+        if (maxStalenessSeconds != 0 && maxStalenessSeconds < MIN_MAX_STALENESS_SECONDS) {
+            throw new IllegalArgumentException("mongo.authReads.maxStalenessSeconds must be 0 or at least "
+                    + MIN_MAX_STALENESS_SECONDS + ", was " + maxStalenessSeconds);
+        }
+        return maxStalenessSeconds > 0
+                ? ReadPreference.valueOf(mode, List.of(), maxStalenessSeconds, TimeUnit.SECONDS)
+                : ReadPreference.valueOf(mode);
+    }
+
+}
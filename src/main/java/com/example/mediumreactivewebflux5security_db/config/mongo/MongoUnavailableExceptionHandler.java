@@ -0,0 +1,42 @@
+package com.example.mediumreactivewebflux5security_db.config.mongo;
+
+import com.mongodb.MongoTimeoutException;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers {@code 503 Service Unavailable} with a {@code Retry-After} header, rather than a 500, when a request failed because
+ * MongoDB could not be reached in time: the {@link ConnectionPoolGuard} shed it, no pooled connection was free within
+ * {@code mongo.pool.maxWaitMillis}, or no server was available. It runs before Boot's error handler, and also covers the
+ * user lookups of the security filter chain.
+ */
+@Component
+@Order(-2)
+public class MongoUnavailableExceptionHandler implements WebExceptionHandler {
+
+    @Override
+    public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (!isUnavailable(ex) || response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return response.setComplete();
+    }
+
+    private static boolean isUnavailable(Throwable ex) {
+        // Spring Data translates the driver's timeouts, socket and server selection failures
+        return ex instanceof ConnectionPoolSaturatedException
+                || ex instanceof MongoTimeoutException
+                || ex instanceof DataAccessResourceFailureException;
+    }
+
+}
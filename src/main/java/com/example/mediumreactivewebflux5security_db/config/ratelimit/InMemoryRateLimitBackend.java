@@ -0,0 +1,78 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Token buckets kept in this instance's memory.</p>
+ * <p>Each bucket is a single {@link AtomicLong} holding the time at which it is full again (the generic cell rate algorithm).
+ * A request moves that time forward by one refill interval with a compare-and-set, unless it is already more than
+ * {@code capacity - 1} intervals ahead. No lock is taken and a request allocates nothing unless it is rejected.</p>
+ * <p>A bucket that is full again is the same as no bucket, so such buckets are evicted every {@code rateLimit.evictionInterval}
+ * seconds. Memory is proportional to the keys seen within one refill of their bucket.</p>
+ */
+@Component
+public class InMemoryRateLimitBackend implements RateLimitBackend {
+
+    private static final Mono<Duration> ALLOWED = Mono.just(Duration.ZERO);
+
+    private final Map<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public InMemoryRateLimitBackend() {
+        this(System::nanoTime);
+    }
+
+    InMemoryRateLimitBackend(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Mono<Duration> tryAcquire(String key, RateLimit limit) {
+        long now = nanoClock.getAsLong();
+        long interval = limit.refillInterval().toNanos();
+        long tolerance = interval * (limit.capacity() - 1);
+        AtomicLong bucket = fullAt.get(key);
+        if (bucket == null) {
+            bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = bucket.get();
+            long start = Math.max(current, now);
+            if (start - now > tolerance) {
+                return Mono.just(Duration.ofNanos(start - now - tolerance));
+            }
+            if (bucket.compareAndSet(current, start + interval)) {
+                return ALLOWED;
+            }
+        }
+    }
+
+    /**
+     * Drops the buckets that are full again. A request racing with the eviction of its bucket may not be counted, which only
+     * ever lets one more request through.
+     */
+    @Scheduled(fixedDelayString = "${rateLimit.evictionInterval}", timeUnit = TimeUnit.SECONDS)
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    /**
+     * @return the number of buckets currently held
+     */
+    int size() {
+        return fullAt.size();
+    }
+
+}
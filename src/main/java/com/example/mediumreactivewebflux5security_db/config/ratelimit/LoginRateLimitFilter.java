@@ -0,0 +1,151 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * <p>Throttles {@code POST /login} per remote address and per username with the {@link LoginRateLimiter}, answering 429 with
+ * a {@code Retry-After} header before the user is looked up or any password is hashed.</p>
+ * <p>The address is checked first, without reading the body. Only then is the body read, once, to find the username; the
+ * rest of the chain reads the same bytes again. Bodies larger than {@value #MAX_BODY_BYTES} bytes are rejected with 413.</p>
+ * <p>Behind a proxy, set {@code server.forward-headers-strategy=framework} so the remote address is the client's.</p>
+ * <p>This filter is added to the security filter chain by {@code WebfluxSecurityConfiguration}. It is not a bean, or Spring
+ * Boot would also add it to the global filter chain.</p>
+ */
+public class LoginRateLimitFilter implements WebFilter {
+
+    /**
+     * Far more than a username and a password take.
+     */
+    static final int MAX_BODY_BYTES = 4096;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final LoginRateLimiter loginRateLimiter;
+
+    public LoginRateLimitFilter(LoginRateLimiter loginRateLimiter) {
+        this.loginRateLimiter = loginRateLimiter;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.POST || !"/login".equals(request.getPath().pathWithinApplication().value())) {
+            return chain.filter(exchange);
+        }
+        return loginRateLimiter.acquireForAddress(remoteAddress(request))
+                .flatMap(addressWait -> {
+                    if (!addressWait.isZero()) {
+                        return reject(exchange.getResponse(), addressWait);
+                    }
+                    return DataBufferUtils.join(request.getBody(), MAX_BODY_BYTES)
+                            .map(LoginRateLimitFilter::toBytes)
+                            .defaultIfEmpty(new byte[0])
+                            .flatMap(body -> {
+                                ServerWebExchange replayed = exchange.mutate().request(new ReplayedBodyRequest(request, body, exchange.getResponse().bufferFactory())).build();
+                                String username = readUsername(body);
+                                if (username == null) {
+                                    return chain.filter(replayed);
+                                }
+                                return loginRateLimiter.acquireForUsername(username)
+                                        .flatMap(usernameWait -> usernameWait.isZero()
+                                                ? chain.filter(replayed)
+                                                : reject(exchange.getResponse(), usernameWait));
+                            })
+                            .onErrorResume(DataBufferLimitException.class, exception -> {
+                                exchange.getResponse().setStatusCode(PAYLOAD_TOO_LARGE);
+                                return exchange.getResponse().setComplete();
+                            });
+                });
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, Duration wait) {
+        response.setStatusCode(TOO_MANY_REQUESTS);
+        response.getHeaders().set(RETRY_AFTER, Long.toString(Math.max(1, (wait.toMillis() + 999) / 1000)));
+        return response.setComplete();
+    }
+
+    private static String remoteAddress(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        if (remoteAddress == null || remoteAddress.getAddress() == null) {
+            return "unknown";
+        }
+        return remoteAddress.getAddress().getHostAddress();
+    }
+
+    private static byte[] toBytes(DataBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * @return the top level {@code username} string of the JSON body, or {@code null} if there is none, the controller then
+     * rejects the request on its own
+     */
+    private static String readUsername(byte[] body) {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING && "username".equals(name)) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The original request with its body served from the bytes already read.
+     */
+    private static class ReplayedBodyRequest extends ServerHttpRequestDecorator {
+
+        private final byte[] body;
+        private final DataBufferFactory bufferFactory;
+
+        ReplayedBodyRequest(ServerHttpRequest delegate, byte[] body, DataBufferFactory bufferFactory) {
+            super(delegate);
+            this.body = body;
+            this.bufferFactory = bufferFactory;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> Flux.just(bufferFactory.wrap(body)));
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * The login attempts allowed per remote address and per username, see {@link LoginRateLimitFilter}.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final RateLimitBackend rateLimitBackend;
+    private final SecurityMetrics securityMetrics;
+    private final RateLimit perAddress;
+    private final RateLimit perUsername;
+
+    public LoginRateLimiter(RateLimitBackend rateLimitBackend,
+                            SecurityMetrics securityMetrics,
+                            @Value("${login.rateLimit.perAddress.capacity}") long addressCapacity,
+                            @Value("${login.rateLimit.perAddress.refillsPerMinute}") long addressRefillsPerMinute,
+                            @Value("${login.rateLimit.perUsername.capacity}") long usernameCapacity,
+                            @Value("${login.rateLimit.perUsername.refillsPerMinute}") long usernameRefillsPerMinute) {
+        this.rateLimitBackend = rateLimitBackend;
+        this.securityMetrics = securityMetrics;
+        this.perAddress = RateLimit.perMinute(addressCapacity, addressRefillsPerMinute);
+        this.perUsername = RateLimit.perMinute(usernameCapacity, usernameRefillsPerMinute);
+    }
+
+    /**
+     * @param address the remote address of a login request
+     * @return {@link Duration#ZERO} if the attempt is allowed, otherwise how long the client must wait
+     */
+    public Mono<Duration> acquireForAddress(String address) {
+        return rateLimitBackend.tryAcquire("address:" + address, perAddress)
+                .doOnNext(wait -> recordThrottled(wait, "address"));
+    }
+
+    /**
+     * @param username the username a login request is for
+     * @return {@link Duration#ZERO} if the attempt is allowed, otherwise how long the client must wait
+     */
+    public Mono<Duration> acquireForUsername(String username) {
+        return rateLimitBackend.tryAcquire("username:" + username, perUsername)
+                .doOnNext(wait -> recordThrottled(wait, "username"));
+    }
+
+    private void recordThrottled(Duration wait, String key) {
+        if (!wait.isZero()) {
+            securityMetrics.recordLoginThrottled(key);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * A token bucket: up to {@code capacity} requests at once, then one more every {@code refillInterval}.
+ *
+ * @param capacity       the burst allowed after a quiet period
+ * @param refillInterval the time it takes to earn back one request
+ */
+public record RateLimit(long capacity, Duration refillInterval) {
+
+    /**
+     * @param capacity         the burst allowed after a quiet period
+     * @param refillsPerMinute the sustained rate
+     * @return the corresponding limit
+     */
+    public static RateLimit perMinute(long capacity, long refillsPerMinute) {
+        return new RateLimit(capacity, Duration.ofMinutes(1).dividedBy(refillsPerMinute));
+    }
+
+}
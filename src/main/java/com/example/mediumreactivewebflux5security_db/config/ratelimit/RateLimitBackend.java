@@ -0,0 +1,23 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * <p>Where the rate limit buckets live.</p>
+ * <p>{@link InMemoryRateLimitBackend} limits each instance on its own. To share the limits between instances, declare an
+ * implementation backed by a shared store as a {@code @Primary} bean, it replaces the in-memory one everywhere.</p>
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Takes one request from the bucket of {@code key}.
+     *
+     * @param key   the bucket, such as a remote address or a username, prefixed by what it is
+     * @param limit the limit of that bucket
+     * @return {@link Duration#ZERO} if the request is allowed, otherwise how long until it would be
+     */
+    Mono<Duration> tryAcquire(String key, RateLimit limit);
+
+}
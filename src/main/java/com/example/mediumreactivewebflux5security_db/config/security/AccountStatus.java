@@ -0,0 +1,36 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * The account checks shared by the login, the refresh, the token authentication and the token introspection, so a disabled or
+ * expired account is refused everywhere as soon as its new state is loaded.
+ * <p>A lockout only gates the password login. It is triggered by failed password attempts that anyone knowing the username
+ * can make, so it must not end the tokens and refresh sessions the user already holds.</p>
+ */
+public final class AccountStatus {
+
+    private AccountStatus() {
+    }
+
+    /**
+     * @param userDetails a user found by its username
+     * @return whether the user may log in with a password: the account is usable by {@link #canKeepSession(UserDetails)}
+     * and not locked
+     */
+    public static boolean canLogIn(UserDetails userDetails) {
+        return canKeepSession(userDetails) && userDetails.isAccountNonLocked();
+    }
+
+    /**
+     * @param userDetails a user found by its username
+     * @return whether the tokens and refresh sessions of the user stay valid: the account is enabled, and neither it nor its
+     * credentials have expired
+     */
+    public static boolean canKeepSession(UserDetails userDetails) {
+        return userDetails.isEnabled()
+                && userDetails.isAccountNonExpired()
+                && userDetails.isCredentialsNonExpired();
+    }
+
+}
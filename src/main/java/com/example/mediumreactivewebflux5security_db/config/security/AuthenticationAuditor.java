@@ -0,0 +1,67 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>Writes one structured audit event per bearer token authentication to the {@code audit.authentication} logger, with the
+ * outcome, the rejection reason, the username when it is known and a fingerprint of the token. The token itself is never logged.</p>
+ * <p>Successes are sampled with {@code audit.authentication.successSampleRate}, failures are always logged. {@code logback-spring.xml}
+ * routes the logger through a bounded asynchronous appender that never blocks, so a request only pays for building the event and
+ * putting it on the queue. Successes are logged at {@code INFO} and failures at {@code WARN}, when the queue fills up the appender
+ * drops successes first.</p>
+ */
+@Slf4j(topic = "audit.authentication")
+@Component
+public class AuthenticationAuditor {
+
+    @Value("${audit.authentication.successSampleRate}")
+    private double successSampleRate;
+
+    /**
+     * @param username the authenticated user
+     * @param token    the bearer token, only its fingerprint is logged
+     */
+    public void success(String username, String token) {
+        if (!log.isInfoEnabled() || ThreadLocalRandom.current().nextDouble() >= successSampleRate) {
+            return;
+        }
+        log.atInfo()
+                .addKeyValue("event", "authentication")
+                .addKeyValue("outcome", "success")
+                .addKeyValue("username", username)
+                .addKeyValue("token", fingerprint(token))
+                .log("authentication succeeded");
+    }
+
+    /**
+     * @param rejection why the token was rejected
+     * @param username  the subject of the token, or {@code null} if the token was rejected before its claims could be trusted
+     * @param token     the bearer token, only its fingerprint is logged
+     */
+    public void failure(TokenRejection rejection, String username, String token) {
+        if (!log.isWarnEnabled()) {
+            return;
+        }
+        log.atWarn()
+                .addKeyValue("event", "authentication")
+                .addKeyValue("outcome", "failure")
+                .addKeyValue("reason", rejection.name().toLowerCase())
+                .addKeyValue("username", username)
+                .addKeyValue("token", fingerprint(token))
+                .log("authentication failed");
+    }
+
+    /**
+     * @return the first 8 bytes of the SHA-256 digest of the token in hex, enough to correlate the events of one token
+     */
+    static String fingerprint(String token) {
+        return HexFormat.of().formatHex(Digests.sha256(token), 0, 8);
+    }
+
+}
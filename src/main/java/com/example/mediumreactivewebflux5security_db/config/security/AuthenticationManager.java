@@ -1,6 +1,12 @@
 package com.example.mediumreactivewebflux5security_db.config.security;
 
+import com.example.mediumreactivewebflux5security_db.config.jwt.InvalidTokenException;
 import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics.TokenOutcome;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
@@ -12,6 +18,7 @@ import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 import java.util.Collection;
+import java.util.OptionalInt;
 
 
 /**
@@ -25,29 +32,88 @@ public class AuthenticationManager implements ReactiveAuthenticationManager {
 
     private final JWTUtil jwtUtil;
     private final ReactiveUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final SecurityMetrics securityMetrics;
+    private final AuthenticationAuditor authenticationAuditor;
+    private final SessionRevocationList sessionRevocationList;
 
     /**
      * Authenticates the JWT token in the input {@link Authentication} object and returns an authenticated {@link Authentication} object.
+     * <p>If the token carries roles that the {@link TokenRevocationRegistry} still trusts, the user is not looked up at all.
+     * Otherwise the token is rejected if its user is gone or can no longer {@link AccountStatus#canKeepSession keep a session}.
+     * A locked account keeps its tokens, the lockout only gates the password login.</p>
+     * <p>A token whose session may have been revoked according to the {@link SessionRevocationList} is checked against the
+     * database, any other token is not.</p>
+     * <p>Nothing is done until the returned {@link Mono} is subscribed to, and a rejected token never throws: the {@link Mono}
+     * fails with a stackless {@link InvalidTokenException} instead.</p>
      *
      * @param authentication the input {@link Authentication} object containing the JWT token
      * @return a {@link Mono} object containing the authenticated {@link Authentication} object
-     * @throws RuntimeException if the user is not found
      */
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
-        String token = authentication.getCredentials().toString();
-        String username = jwtUtil.extractUsername(token);
-        return userDetailsService.findByUsername(username)
-                .map(userDetails -> {
+        return Mono.defer(() -> {
+            String token = authentication.getCredentials().toString();
+            return verify(token).flatMap(claims -> {
+                String sessionId = jwtUtil.extractSessionId(claims);
+                if (sessionId != null && sessionRevocationList.mightBeRevoked(sessionId)) {
+                    return sessionRevocationList.isRevoked(sessionId)
+                            .flatMap(revoked -> revoked
+                                    ? reject(TokenRejection.REVOKED_SESSION, claims.getSubject(), token)
+                                    : authenticate(token, claims));
+                }
+                return authenticate(token, claims);
+            });
+        });
+    }
+
+    private Mono<Authentication> authenticate(String token, Claims claims) {
+        String username = claims.getSubject();
+        OptionalInt embeddedRoles = jwtUtil.extractRoleMask(claims);
+        if (embeddedRoles.isPresent() && tokenRevocationRegistry.trustsRoleClaims(claims)) {
+            securityMetrics.recordRolesSource(true);
+            authenticationAuditor.success(username, token);
+            return Mono.just(new UsernamePasswordAuthenticationToken(username, token, Role.authoritiesOf(embeddedRoles.getAsInt())));
+        }
+        securityMetrics.recordRolesSource(false);
+        return securityMetrics.timeUserLookup(userDetailsService.findByUsername(username))
+                .flatMap(userDetails -> {
+                    if (!AccountStatus.canKeepSession(userDetails)) {
+                        return reject(TokenRejection.INACTIVE_ACCOUNT, username, token);
+                    }
                     Collection<? extends GrantedAuthority> authorities = userDetails.getAuthorities();
-                    return new UsernamePasswordAuthenticationToken(
+                    return Mono.just(new UsernamePasswordAuthenticationToken(
                             username,
                             token,
                             authorities
-                    );
+                    ));
                 })
                 .map(authenticationToken -> (Authentication) authenticationToken)
-                .switchIfEmpty(Mono.error(new RuntimeException("User not found")));
+                .doOnNext(authenticated -> authenticationAuditor.success(username, token))
+                .switchIfEmpty(Mono.defer(() -> reject(TokenRejection.UNKNOWN_USER, username, token)));
+    }
+
+    /**
+     * Verifies the token and records how long it took and why it failed, if it did.
+     */
+    private Mono<Claims> verify(String token) {
+        long start = System.nanoTime();
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            securityMetrics.recordTokenVerification(TokenOutcome.VALID, System.nanoTime() - start);
+            return Mono.just(claims);
+        } catch (InvalidTokenException exception) {
+            securityMetrics.recordTokenVerification(TokenOutcome.of(exception.getRejection()), System.nanoTime() - start);
+            securityMetrics.recordTokenRejection(exception.getRejection());
+            authenticationAuditor.failure(exception.getRejection(), null, token);
+            return Mono.error(exception);
+        }
+    }
+
+    private <T> Mono<T> reject(TokenRejection rejection, String username, String token) {
+        securityMetrics.recordTokenRejection(rejection);
+        authenticationAuditor.failure(rejection, username, token);
+        return Mono.error(new InvalidTokenException(rejection));
     }
 
     /*
@@ -58,8 +124,12 @@ public class AuthenticationManager implements ReactiveAuthenticationManager {
     * The input `Authentication` object contains the JWT token to be validated, while the output `Mono<Authentication>` object contains the authenticated
     *  `Authentication` object.
     * The method first extracts the JWT token from the input `Authentication` object and extracts the username from the token using the `JWTUtil` object.
-    * It then calls the `findByUsername` method of the `ReactiveUserDetailsService` object to load the user details for the given username. If the user is found, the method creates a `UsernamePasswordAuthenticationToken` object using the username, token, and granted authorities from the user details.
+    * Tokens of a session that the `SessionRevocationList` may have revoked are confirmed against the db and rejected if it is.
+    * When roles are embedded in the token and the `TokenRevocationRegistry` still trusts them, the authenticated token is built from those roles
+    * directly and no lookup is made.
+    * It then calls the `findByUsername` method of the `ReactiveUserDetailsService` object to load the user details for the given username. A disabled or expired account is rejected, a locked one is not, as the lockout only gates the login. If the user is found, the method creates a `UsernamePasswordAuthenticationToken` object using the username, token, and granted authorities from the user details.
     * The method then returns the `UsernamePasswordAuthenticationToken` object wrapped in a `Mono` object.
-    * If the user is not found, the method returns a `Mono` object with an error.
+    * Every outcome is reported to the `AuthenticationAuditor`, which logs failures and a sample of successes.
+    * If the token is rejected or the user is not found, the method returns a `Mono` object with an `InvalidTokenException`, which has no stack trace.
     */
 }
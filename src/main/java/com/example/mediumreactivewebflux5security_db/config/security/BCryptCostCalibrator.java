@@ -0,0 +1,77 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * <p>Picks the BCrypt cost that makes a password verification take at least a target time on the current hardware.</p>
+ * <p>Every extra cost unit doubles the verification time, so the calibration hashes a sample password at increasing costs,
+ * starting from a minimum, and stops at the first cost whose fastest verification reaches the target.</p>
+ */
+@Slf4j
+public final class BCryptCostCalibrator {
+
+    /**
+     * Upper bound of the calibration, a single verification at cost 16 already takes seconds on common hardware.
+     */
+    static final int MAX_STRENGTH = 16;
+    private static final int SAMPLES = 3;
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private BCryptCostCalibrator() {
+    }
+
+    /**
+     * Builds the password encoder of both the reactive and the virtual thread modes, so they accept and produce the same hashes.
+     * <p>New passwords are hashed with BCrypt behind a {@link DelegatingPasswordEncoder}. Hashes without an <code>{id}</code>
+     * prefix, or with a lower cost, are still accepted and {@link PasswordEncoder#upgradeEncoding(String) reported for upgrade}.</p>
+     *
+     * @param strength     the BCrypt cost, or the minimum cost when calibrating
+     * @param targetMillis the verification time to calibrate the cost for, {@code 0} disables the calibration
+     * @return the password encoder
+     */
+    public static PasswordEncoder passwordEncoder(int strength, long targetMillis) {
+        int cost = targetMillis > 0 ? calibrate(strength, Duration.ofMillis(targetMillis)) : strength;
+        BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder(cost);
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bCryptPasswordEncoder));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        return passwordEncoder;
+    }
+
+    /**
+     * @param minimumStrength the lowest cost to use, whatever the hardware
+     * @param target          the verification time to reach
+     * @return the lowest cost, between {@code minimumStrength} and {@link #MAX_STRENGTH}, whose verification takes at least {@code target}
+     */
+    public static int calibrate(int minimumStrength, Duration target) {
+        int strength = minimumStrength;
+        while (strength < MAX_STRENGTH) {
+            Duration verification = measureVerification(strength);
+            log.info("BCrypt cost {} verifies a password in {} ms", strength, verification.toMillis());
+            if (verification.compareTo(target) >= 0) {
+                break;
+            }
+            strength++;
+        }
+        log.info("Using BCrypt cost {} for a target verification time of {} ms", strength, target.toMillis());
+        return strength;
+    }
+
+    private static Duration measureVerification(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return Duration.ofNanos(fastest);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link ReactiveUserDetailsService} that caches the {@link UserDetails} loaded by a delegate, so authenticated requests
+ * do not query the database for every call.</p>
+ * <p>Entries expire after a fixed time to live and the cache is bounded in size. Concurrent misses for the same username share
+ * a single in-flight load of the delegate. Unknown users are not cached.</p>
+ * <p>{@link #findAllByUsername(Collection)} loads all the users missing from the cache with one call of the bulk delegate.</p>
+ * <p>Whenever the roles, the password or the enabled flag of a user change, {@link #invalidate(String)} must be called so the next
+ * request sees the new state instead of waiting for the time to live. Changes made to the database by anyone else reach it
+ * through the {@link UserChangeStreamListener}.</p>
+ * <p>Its hit, miss and eviction counters are exported as the {@code userDetails} cache metrics.</p>
+ */
+public class CachingReactiveUserDetailsService implements ReactiveUserDetailsService, MeterBinder {
+
+    private final ReactiveUserDetailsService delegate;
+    private final Function<Set<String>, Flux<UserDetails>> bulkDelegate;
+    private final AsyncCache<String, UserDetails> cache;
+
+    public CachingReactiveUserDetailsService(ReactiveUserDetailsService delegate, Duration timeToLive, long maximumSize) {
+        this(delegate, usernames -> Flux.fromIterable(usernames).flatMap(delegate::findByUsername), timeToLive, maximumSize);
+    }
+
+    /**
+     * @param delegate     loads one user
+     * @param bulkDelegate loads several users at once, the users that do not exist are left out
+     * @param timeToLive   how long a user is cached
+     * @param maximumSize  the maximum number of cached users
+     */
+    public CachingReactiveUserDetailsService(ReactiveUserDetailsService delegate, Function<Set<String>, Flux<UserDetails>> bulkDelegate,
+                                             Duration timeToLive, long maximumSize) {
+        this.delegate = delegate;
+        this.bulkDelegate = bulkDelegate;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Returns the cached user details, loading them from the delegate on a miss.
+     * <p>Cancelling the returned {@link Mono} does not cancel a load that other subscribers may be waiting for.</p>
+     *
+     * @param username the username to look up
+     * @return a {@link Mono} with the user details, or an empty {@link Mono} if the user does not exist
+     */
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return Mono.fromFuture(
+                () -> cache.get(username, (key, executor) -> delegate.findByUsername(key).toFuture()),
+                true
+        );
+    }
+
+    /**
+     * Returns the cached details of several users, loading all the missing ones with a single call of the bulk delegate.
+     * <p>Users already being loaded by another lookup are not loaded again.</p>
+     *
+     * @param usernames the usernames to look up
+     * @return a {@link Mono} with the user details by username, the users that do not exist are left out
+     */
+    public Mono<Map<String, UserDetails>> findAllByUsername(Collection<String> usernames) {
+        return Mono.fromFuture(
+                () -> cache.getAll(usernames, (missing, executor) -> bulkDelegate.apply(Collections.unmodifiableSet(missing))
+                        .collectMap(UserDetails::getUsername)
+                        .toFuture()),
+                true
+        );
+    }
+
+    /**
+     * Drops the cached details of a user, the next lookup goes to the delegate.
+     *
+     * @param username the user whose roles, password or enabled flag changed
+     */
+    public void invalidate(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    /**
+     * Drops the cached details of every user.
+     */
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * @return the hit, miss and eviction counters of the cache since startup
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+    }
+
+}
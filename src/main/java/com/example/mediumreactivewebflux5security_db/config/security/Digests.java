@@ -0,0 +1,28 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The SHA-256 digests of tokens and secrets: the claims cache keys, the audit fingerprints, the key id of the shared secret
+ * and the stored refresh token hashes.
+ */
+public final class Digests {
+
+    private Digests() {
+    }
+
+    /**
+     * @param value a token or secret, tokens and generated secrets are ASCII so their UTF-8 bytes are their ASCII bytes
+     * @return the SHA-256 digest of the UTF-8 bytes of {@code value}
+     */
+    public static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
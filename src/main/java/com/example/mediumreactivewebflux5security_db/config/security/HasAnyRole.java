@@ -0,0 +1,27 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.model.Role;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts a reactive handler method to callers that have at least one of the given roles.
+ * <p>The equivalent of {@code @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")}. The annotations are compiled into a route table
+ * at startup and checked by {@link RouteAuthorizationManager} in the security filter chain, as a single bitmask test before the
+ * request is dispatched.</p>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HasAnyRole {
+
+    /**
+     * @return the roles granting access, at least one is required
+     */
+    Role[] value();
+
+}
@@ -0,0 +1,158 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Counts the failed logins of each username and locks the account for {@code login.lockout.duration} seconds once
+ * {@code login.lockout.maxFailures} failures happened within a sliding window of {@code login.lockout.window} seconds.</p>
+ * <p>The window is approximated from two fixed windows: the failures of the previous window, weighted by how much of it still
+ * overlaps the sliding window, plus those of the current one. Both counts and the index of the current window are packed
+ * into a single {@link AtomicLong} updated with a compare-and-set, so recording a failure takes no lock.</p>
+ * <p>A lockout is checked here before the user is looked up, so a locked account costs neither a query nor a password hash.
+ * It is also written to the {@code lockedUntil} field of the user in the background, so the other instances refuse the
+ * account as soon as the {@link UserChangeStreamListener} evicts it from their cache. A success clears the failures.</p>
+ * <p>Usernames without failures in the last two windows and without a lockout are evicted every {@code rateLimit.evictionInterval}
+ * seconds.</p>
+ */
+@Slf4j
+@Component
+public class LoginFailureTracker {
+
+    private static final long COUNT_MASK = 0xFFFF;
+
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final int maxFailures;
+    private final long windowMillis;
+    private final long durationMillis;
+    private final LongSupplier millisClock;
+
+    @Autowired
+    public LoginFailureTracker(ReactiveUserRepository reactiveUserRepository,
+                               @Value("${login.lockout.maxFailures}") int maxFailures,
+                               @Value("${login.lockout.window}") long window,
+                               @Value("${login.lockout.duration}") long duration) {
+        this(reactiveUserRepository, maxFailures, Duration.ofSeconds(window), Duration.ofSeconds(duration), System::currentTimeMillis);
+    }
+
+    LoginFailureTracker(ReactiveUserRepository reactiveUserRepository, int maxFailures, Duration window, Duration duration,
+                        LongSupplier millisClock) {
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.maxFailures = maxFailures;
+        this.windowMillis = window.toMillis();
+        this.durationMillis = duration.toMillis();
+        this.millisClock = millisClock;
+    }
+
+    /**
+     * @param username the username a login request is for
+     * @return {@link Duration#ZERO} if the account is not locked by this instance, otherwise how long it stays locked
+     */
+    public Duration lockedFor(String username) {
+        Failures entry = failures.get(username);
+        if (entry == null) {
+            return Duration.ZERO;
+        }
+        long remaining = entry.lockedUntil.get() - millisClock.getAsLong();
+        return remaining > 0 ? Duration.ofMillis(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * Counts a failed login, and locks the account if it reached the maximum number of failures within the window.
+     *
+     * @param username the username of the failed login, whether or not such a user exists
+     * @return {@link Duration#ZERO} if the account is still open, otherwise how long it is now locked
+     */
+    public Duration recordFailure(String username) {
+        long now = millisClock.getAsLong();
+        long window = now / windowMillis;
+        Failures entry = failures.computeIfAbsent(username, key -> new Failures());
+        while (true) {
+            long state = entry.window.get();
+            long stateWindow = state >>> 32;
+            long previous = stateWindow == window ? (state >>> 16) & COUNT_MASK : stateWindow == window - 1 ? state & COUNT_MASK : 0;
+            long current = stateWindow == window ? state & COUNT_MASK : 0;
+            current = Math.min(current + 1, COUNT_MASK);
+            if (!entry.window.compareAndSet(state, pack(window, previous, current))) {
+                continue;
+            }
+            long overlap = windowMillis - now % windowMillis;
+            if (previous * overlap / windowMillis + current < maxFailures) {
+                return Duration.ZERO;
+            }
+            entry.window.compareAndSet(pack(window, previous, current), pack(window, 0, 0));
+            lock(username, entry, now);
+            return Duration.ofMillis(durationMillis);
+        }
+    }
+
+    /**
+     * Forgets the failures of a username after a successful login.
+     *
+     * @param username the username that just logged in
+     */
+    public void recordSuccess(String username) {
+        failures.remove(username);
+    }
+
+    /**
+     * Drops the usernames whose failures all fell out of the sliding window and that are not locked. A failure racing with the
+     * eviction of its username may not be counted, which only ever allows one more attempt.
+     */
+    @Scheduled(fixedDelayString = "${rateLimit.evictionInterval}", timeUnit = TimeUnit.SECONDS)
+    public void evictIdle() {
+        long now = millisClock.getAsLong();
+        long window = now / windowMillis;
+        failures.values().removeIf(entry -> (entry.window.get() >>> 32) < window - 1 && entry.lockedUntil.get() <= now);
+    }
+
+    /**
+     * @return the number of usernames currently tracked
+     */
+    int size() {
+        return failures.size();
+    }
+
+    /**
+     * Sets the end of the lockout, only the caller that actually moved it persists it so concurrent failures write it once.
+     */
+    private void lock(String username, Failures entry, long now) {
+        long lockedUntil = now + durationMillis;
+        long current = entry.lockedUntil.get();
+        if (current > now || !entry.lockedUntil.compareAndSet(current, lockedUntil)) {
+            return;
+        }
+        log.info("Locked {} for {} seconds after {} failed logins", username, durationMillis / 1000, maxFailures);
+        reactiveUserRepository.updateLockedUntilByUsername(username, Instant.ofEpochMilli(lockedUntil))
+                .subscribe(
+                        updated -> log.debug("Persisted the lockout of {} on {} user(s)", username, updated),
+                        exception -> log.warn("Could not persist the lockout of {}", username, exception)
+                );
+    }
+
+    private static long pack(long window, long previous, long current) {
+        return window << 32 | previous << 16 | current;
+    }
+
+    /**
+     * The failures of one username: the packed sliding window state and the end of its lockout in epoch milliseconds.
+     */
+    private static final class Failures {
+        private final AtomicLong window = new AtomicLong();
+        private final AtomicLong lockedUntil = new AtomicLong();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Runs the {@link PasswordEncoder} on a dedicated bounded scheduler instead of the Netty event loop.</p>
+ * <p>BCrypt is deliberately slow, a single verification on an event-loop thread stalls every other connection of that loop.
+ * At most {@code password.hashing.concurrency} hashes run at once and at most {@code password.hashing.queueCapacity} wait for a
+ * thread. Anything beyond that fails immediately with a {@link PasswordHashingRejectedException} instead of queueing.</p>
+ * <p>A hash that is cancelled while it runs, because its client went away, still counts until it finishes.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+
+    @Value("${password.hashing.concurrency}")
+    private int concurrency;
+    @Value("${password.hashing.queueCapacity}")
+    private int queueCapacity;
+    private final AtomicInteger pending = new AtomicInteger();
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        // the queue is bounded by the pending counter in submit(), which unlike queuedTaskCap is not per thread
+        this.scheduler = Schedulers.newBoundedElastic(concurrency, Integer.MAX_VALUE, "password-hashing");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * Verifies a raw password against an encoded one off the event loop.
+     *
+     * @param rawPassword     the password sent by the client
+     * @param encodedPassword the stored password hash
+     * @return a {@link Mono} emitting whether the password matches, or a {@link PasswordHashingRejectedException} if the hashing pool is saturated
+     */
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes a raw password off the event loop.
+     *
+     * @param rawPassword the password to hash
+     * @return a {@link Mono} emitting the encoded password, or a {@link PasswordHashingRejectedException} if the hashing pool is saturated
+     */
+    public Mono<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @param encodedPassword a stored password hash
+     * @return whether the hash was made with an older algorithm or a lower cost and should be rehashed
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> Mono<T> submit(Callable<T> task) {
+        return Mono.defer(() -> {
+            if (pending.incrementAndGet() > concurrency + queueCapacity) {
+                pending.decrementAndGet();
+                return Mono.error(PasswordHashingRejectedException.INSTANCE);
+            }
+            // BCrypt can not be interrupted, so a cancelled hash keeps its slot until it finishes: the slot is released by the
+            // task once it has started, or by the subscriber if it is cancelled or rejected before that
+            AtomicBoolean claimed = new AtomicBoolean();
+            return Mono.fromCallable(() -> {
+                        if (!claimed.compareAndSet(false, true)) {
+                            return null;
+                        }
+                        try {
+                            return task.call();
+                        } finally {
+                            pending.decrementAndGet();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .doFinally(signalType -> {
+                        if (claimed.compareAndSet(false, true)) {
+                            pending.decrementAndGet();
+                        }
+                    });
+        });
+    }
+
+}
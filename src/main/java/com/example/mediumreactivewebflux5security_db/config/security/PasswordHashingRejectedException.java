@@ -0,0 +1,15 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+/**
+ * Signals that the {@link PasswordHasher} pool is saturated and the request should be retried later.
+ * <p>It is raised under load, so it is a shared instance without a stack trace.</p>
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    static final PasswordHashingRejectedException INSTANCE = new PasswordHashingRejectedException();
+
+    private PasswordHashingRejectedException() {
+        super("Password hashing capacity exceeded", null, false, false);
+    }
+
+}
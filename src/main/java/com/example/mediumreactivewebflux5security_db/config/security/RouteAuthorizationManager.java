@@ -0,0 +1,55 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>Authorizes every request in the security filter chain against a {@link RouteAuthorizationTable} compiled from the
+ * {@link HasAnyRole} annotations of the handler methods, so denied requests never reach the controllers and no method security
+ * proxy or expression is involved.</p>
+ * <p>A route without {@link HasAnyRole} only requires an authenticated caller. The table is compiled once all singletons exist,
+ * before the server starts, and every request is denied until then.</p>
+ */
+@Component
+public class RouteAuthorizationManager implements ReactiveAuthorizationManager<AuthorizationContext>, SmartInitializingSingleton {
+
+    private static final Mono<AuthorizationDecision> GRANTED = Mono.just(new AuthorizationDecision(true));
+    private static final Mono<AuthorizationDecision> DENIED = Mono.just(new AuthorizationDecision(false));
+
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+    private volatile RouteAuthorizationTable table;
+
+    public RouteAuthorizationManager(@Qualifier("requestMappingHandlerMapping") ObjectProvider<RequestMappingHandlerMapping> handlerMapping) {
+        this.handlerMapping = handlerMapping;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        table = RouteAuthorizationTable.compile(handlerMapping.getObject().getHandlerMethods());
+    }
+
+    @Override
+    public Mono<AuthorizationDecision> check(Mono<Authentication> authentication, AuthorizationContext context) {
+        RouteAuthorizationTable table = this.table;
+        if (table == null) {
+            return DENIED;
+        }
+        ServerHttpRequest request = context.getExchange().getRequest();
+        int required = table.requiredMask(request.getMethod(), request.getPath().pathWithinApplication());
+        return authentication
+                .filter(Authentication::isAuthenticated)
+                .flatMap(caller -> required == 0 || (Role.maskOf(caller.getAuthorities()) & required) != 0 ? GRANTED : DENIED)
+                .switchIfEmpty(DENIED);
+    }
+
+}
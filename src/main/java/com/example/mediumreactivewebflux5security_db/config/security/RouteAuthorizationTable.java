@@ -0,0 +1,125 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>The roles required by every route of the application, compiled once from the {@link HasAnyRole} annotations of the handler
+ * methods.</p>
+ * <p>A request whose path is exactly the literal path of a route is resolved with one hash lookup. Any other request, with
+ * path variables, encoded characters or a trailing slash, is matched against the same {@link PathPattern}s the handler mapping
+ * uses, most specific first, so the route that is authorized is always the route that is dispatched to.</p>
+ */
+final class RouteAuthorizationTable {
+
+    private static final Comparator<Route> SPECIFICITY = Comparator.comparing(Route::pattern, PathPattern.SPECIFICITY_COMPARATOR)
+            .thenComparing(route -> route.methods().isEmpty());
+
+    /**
+     * @param pattern      the path pattern of the route
+     * @param methods      the methods of the route, any method when empty
+     * @param requiredMask the roles of which the caller needs at least one, {@code 0} when being authenticated is enough
+     */
+    private record Route(PathPattern pattern, Set<RequestMethod> methods, int requiredMask) {
+
+        boolean accepts(RequestMethod method) {
+            return methods.isEmpty() || methods.contains(method) || method == RequestMethod.HEAD && methods.contains(RequestMethod.GET);
+        }
+
+        boolean overlaps(Route other) {
+            return methods.isEmpty() || other.methods.isEmpty() || !Collections.disjoint(methods, other.methods);
+        }
+    }
+
+    private final Map<String, List<Route>> byLiteralPath;
+    private final List<Route> bySpecificity;
+
+    private RouteAuthorizationTable(Map<String, List<Route>> byLiteralPath, List<Route> bySpecificity) {
+        this.byLiteralPath = byLiteralPath;
+        this.bySpecificity = bySpecificity;
+    }
+
+    /**
+     * @param handlerMethods the handler methods of the application, by their request mapping
+     * @return the table of the roles required by each route
+     * @throws IllegalStateException if two handlers of the same path and method require different roles
+     */
+    static RouteAuthorizationTable compile(Map<RequestMappingInfo, HandlerMethod> handlerMethods) {
+        List<Route> routes = new ArrayList<>();
+        handlerMethods.forEach((mapping, handlerMethod) -> {
+            int requiredMask = requiredMask(handlerMethod);
+            Set<RequestMethod> methods = mapping.getMethodsCondition().getMethods();
+            for (PathPattern pattern : mapping.getPatternsCondition().getPatterns()) {
+                routes.add(new Route(pattern, Set.copyOf(methods), requiredMask));
+            }
+        });
+        routes.sort(SPECIFICITY);
+
+        Map<String, List<Route>> byLiteralPath = new HashMap<>();
+        for (Route route : routes) {
+            for (Route other : routes) {
+                if (route != other && route.pattern().equals(other.pattern()) && route.overlaps(other) && route.requiredMask() != other.requiredMask()) {
+                    throw new IllegalStateException("The handlers of " + route.pattern() + " require different roles for the same method");
+                }
+            }
+            if (!route.pattern().hasPatternSyntax()) {
+                byLiteralPath.computeIfAbsent(route.pattern().getPatternString(), path -> new ArrayList<>()).add(route);
+            }
+        }
+        byLiteralPath.replaceAll((path, literalRoutes) -> List.copyOf(literalRoutes));
+        return new RouteAuthorizationTable(Map.copyOf(byLiteralPath), List.copyOf(routes));
+    }
+
+    /**
+     * @param httpMethod the method of the request
+     * @param path       the path of the request within the application
+     * @return the roles of which the caller needs at least one, {@code 0} when being authenticated is enough or no route matches
+     */
+    int requiredMask(HttpMethod httpMethod, PathContainer path) {
+        RequestMethod method = RequestMethod.resolve(httpMethod);
+        List<Route> literalRoutes = byLiteralPath.get(path.value());
+        if (literalRoutes != null) {
+            for (Route route : literalRoutes) {
+                if (route.accepts(method)) {
+                    return route.requiredMask();
+                }
+            }
+        }
+        for (Route route : bySpecificity) {
+            if (route.accepts(method) && route.pattern().matches(path)) {
+                return route.requiredMask();
+            }
+        }
+        return 0;
+    }
+
+    private static int requiredMask(HandlerMethod handlerMethod) {
+        HasAnyRole hasAnyRole = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), HasAnyRole.class);
+        if (hasAnyRole == null) {
+            return 0;
+        }
+        int mask = 0;
+        for (Role role : hasAnyRole.value()) {
+            mask |= role.bit();
+        }
+        if (mask == 0) {
+            throw new IllegalStateException(handlerMethod + " must name at least one role in @HasAnyRole");
+        }
+        return mask;
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.example.mediumreactivewebflux5security_db.config.security;
 
+import com.example.mediumreactivewebflux5security_db.config.jwt.InvalidTokenException;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -22,6 +24,7 @@ import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 public class SecurityContextRepository implements ServerSecurityContextRepository {
 
     private final AuthenticationManager authenticationManager;
+    private final SecurityMetrics securityMetrics;
 
     /**
      * Not implemented. Throws an {@link UnsupportedOperationException}.
@@ -39,6 +42,7 @@ public class SecurityContextRepository implements ServerSecurityContextRepositor
 
     /**
      * Retrieves the {@link SecurityContext} object for the current request based on a JWT token in the request header.
+     * <p>A rejected token leaves the request unauthenticated, so it gets the same 401 response as a request without a token.</p>
      *
      * @param exchange the {@link ServerWebExchange} object
      * @return a {@link Mono} object containing the {@link SecurityContext} object
@@ -46,16 +50,16 @@ public class SecurityContextRepository implements ServerSecurityContextRepositor
     @Override
     public Mono<SecurityContext> load(ServerWebExchange exchange) {
         String authHeader = exchange.getRequest().getHeaders().getFirst(AUTHORIZATION);
-        return Mono.justOrEmpty(authHeader)
+        return securityMetrics.timeContextLoad(Mono.justOrEmpty(authHeader)
                 .filter(header -> header.startsWith("Bearer "))
                 .flatMap(header -> {
                             String token = header.substring(7);
-                            log.info("token from `header.substring(7)` : {}", token);
                             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(token, token);
                             return authenticationManager.authenticate(authentication)
-                                    .map(SecurityContextImpl::new);
+                                    .<SecurityContext>map(SecurityContextImpl::new);
                         }
-                );
+                )
+                .onErrorResume(InvalidTokenException.class, exception -> Mono.empty()));
     }
 
     /*
@@ -69,6 +73,6 @@ public class SecurityContextRepository implements ServerSecurityContextRepositor
      * AuthenticationManager object for authentication.
      * If the token is valid, the AuthenticationManager returns an Authentication object, which is used to create a new SecurityContextImpl object
      * and returned wrapped in a Mono object.
-     * If the token is not valid, the AuthenticationManager returns an error, and the load method returns an empty Mono object.
+     * If the token is not valid, the AuthenticationManager returns an InvalidTokenException, and the load method returns an empty Mono object.
      */
 }
@@ -0,0 +1,218 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>The sessions revoked by a logout or by the reuse of a refresh token, checked on every authenticated request without a
+ * database round trip.</p>
+ * <p>The ids are kept in a Bloom filter. A session that is not in it is certainly not revoked. A hit is confirmed against
+ * the {@code refreshSession} collection, which only happens for revoked sessions and for the configured false positive rate.</p>
+ * <p>Every {@code jwt.refresh.revocation.syncInterval} seconds, the filter is rebuilt from the sessions revoked within the
+ * lifetime of an access token. That brings in the revocations made by other instances and drops the sessions whose access
+ * tokens have all expired. Revocations made by this instance are added right away. A rebuild still running when the next
+ * one is due is not overlapped, the next one is skipped.</p>
+ * <p>The first rebuild runs before the server accepts requests. Until one has succeeded, every session is confirmed against
+ * the database.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionRevocationList implements SmartLifecycle {
+
+    private final RefreshSessionRepository refreshSessionRepository;
+
+    @Value("${jwt.secret.expirationTime}")
+    private long accessTokenLifetime;
+    @Value("${jwt.refresh.revocation.expectedRevocations}")
+    private int expectedRevocations;
+    @Value("${jwt.refresh.revocation.falsePositiveRate}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuilding;
+    private volatile boolean synced;
+    private volatile boolean running;
+    private final AtomicBoolean syncing = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    /**
+     * Marks a session revoked on this instance, its {@link RefreshSession} must already be saved as revoked.
+     *
+     * @param sessionId the revoked session
+     */
+    public void revoke(String sessionId) {
+        filter.add(sessionId);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.add(sessionId);
+        }
+    }
+
+    /**
+     * @param sessionId the {@code sid} claim of an access token
+     * @return {@code false} if the session is certainly not revoked, {@code true} if it must be confirmed with {@link #isRevoked(String)}
+     */
+    public boolean mightBeRevoked(String sessionId) {
+        return !synced || filter.mightContain(sessionId);
+    }
+
+    /**
+     * @param sessionId a session that {@link #mightBeRevoked(String) might be revoked}
+     * @return whether the session is revoked, read from the database
+     */
+    public Mono<Boolean> isRevoked(String sessionId) {
+        return refreshSessionRepository.existsBySessionIdAndRevokedTrue(sessionId);
+    }
+
+    /**
+     * Builds the filter before the server accepts requests, so the sessions revoked before this instance started are known.
+     */
+    @Override
+    public void start() {
+        try {
+            rebuild().block();
+        } catch (RuntimeException exception) {
+            log.warn("Could not sync the revoked sessions, every session is checked against the database until the next sync", exception);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // before the web server, which starts in a later phase
+        return 0;
+    }
+
+    /**
+     * Replaces the filter with one holding the sessions revoked within the lifetime of an access token.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.revocation.syncInterval}", timeUnit = TimeUnit.SECONDS)
+    public void sync() {
+        rebuild().subscribe(
+                revoked -> {
+                },
+                exception -> log.warn("Could not sync the revoked sessions, keeping the previous ones", exception)
+        );
+    }
+
+    /**
+     * @return the number of revoked sessions in the new filter, or empty if another rebuild is still running
+     */
+    private Mono<Long> rebuild() {
+        return Mono.defer(() -> {
+            if (!syncing.compareAndSet(false, true)) {
+                log.debug("Previous sync of the revoked sessions still running, skipping this one");
+                return Mono.empty();
+            }
+            BloomFilter next = new BloomFilter(expectedRevocations, falsePositiveRate);
+            this.rebuilding = next;
+            return refreshSessionRepository.findByRevokedTrueAndUpdatedAtAfter(Instant.now().minusSeconds(accessTokenLifetime))
+                    .doOnNext(session -> next.add(session.getSessionId()))
+                    .count()
+                    .doOnNext(revoked -> {
+                        this.filter = next;
+                        this.synced = true;
+                        log.debug("Synced {} revoked sessions", revoked);
+                    })
+                    .doFinally(signal -> {
+                        this.rebuilding = null;
+                        syncing.set(false);
+                    });
+        });
+    }
+
+    /**
+     * A fixed size Bloom filter over strings, safe for concurrent use without locks.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+
+        /**
+         * @param expectedInsertions the number of ids the filter is sized for
+         * @param falsePositiveRate  the false positive rate once that many ids have been added
+         */
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+            this.bits = (long) words.length() * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / Math.max(1, expectedInsertions) * Math.log(2)));
+        }
+
+        void add(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                long mask = 1L << bit;
+                int index = (int) (bit >>> 6);
+                long word;
+                do {
+                    word = words.get(index);
+                } while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a over the characters followed by the MurmurHash3 finalizer, the two halves seed the double hashing.
+         */
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb3f99a8fe21bL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Decides whether the roles embedded in a JWT can be trusted without looking the user up, when
+ * {@code jwt.rolesInToken.enabled} is set.</p>
+ * <p>Embedded roles are trusted for at most {@code jwt.rolesInToken.maxStaleness} seconds after the token was issued, and not at all
+ * for tokens issued before the last {@link #revokeRoleClaims(String) revocation} of their user. An untrusted token is not
+ * rejected, its roles are simply resolved from the database again. A role downgrade therefore takes effect immediately on this
+ * node and within {@code maxStaleness} seconds everywhere else.</p>
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    @Value("${jwt.rolesInToken.maxStaleness}")
+    private long maxStaleness;
+    private final Map<String, Long> revokedAt = new ConcurrentHashMap<>();
+
+    /**
+     * Stops trusting the embedded roles of every token issued so far to the given user. Called once per changed user, by bulk
+     * imports and by the change stream, so it does not scan the other revocations.
+     *
+     * @param username the user whose roles or enabled flag changed
+     */
+    public void revokeRoleClaims(String username) {
+        revokedAt.put(username, nowInSeconds());
+    }
+
+    /**
+     * Drops the revocations older than {@code maxStaleness}, the tokens they cover are no longer trusted anyway.
+     */
+    @Scheduled(fixedDelayString = "${rateLimit.evictionInterval}", timeUnit = TimeUnit.SECONDS)
+    public void evictExpired() {
+        long oldest = nowInSeconds() - maxStaleness;
+        revokedAt.values().removeIf(revokedAtSeconds -> revokedAtSeconds < oldest);
+    }
+
+    /**
+     * @return the number of users whose role claims are currently revoked
+     */
+    int size() {
+        return revokedAt.size();
+    }
+
+    /**
+     * @param claims the verified claims of a token
+     * @return whether the roles embedded in the token may be used as they are
+     */
+    public boolean trustsRoleClaims(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        if (issuedAt == null) {
+            return false;
+        }
+        long issuedAtSeconds = issuedAt.getTime() / 1000;
+        if (nowInSeconds() - issuedAtSeconds > maxStaleness) {
+            return false;
+        }
+        Long revokedAtSeconds = revokedAt.get(claims.getSubject());
+        return revokedAtSeconds == null || issuedAtSeconds > revokedAtSeconds;
+    }
+
+    private static long nowInSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Watches the {@code user} collection through a MongoDB change stream and evicts the users that changed from the
+ * {@link CachingReactiveUserDetailsService} and the {@link TokenRevocationRegistry}, so role changes and disabled accounts take
+ * effect within milliseconds on every instance instead of after the cache time to live.</p>
+ * <p>Only updates, replacements and deletions are streamed, projected down to the username. A deleted document no longer has a
+ * username, so a deletion evicts every cached user. The stream resumes after the last event it processed when it is interrupted,
+ * for example by a failover. When that position is no longer in the oplog, or the stream starts without one, every cached user
+ * is evicted instead, since changes may have been missed.</p>
+ * <p>Change streams need a replica set or a sharded cluster. On a standalone server, or with
+ * {@code user.cache.changeStream.enabled} turned off, the listener stops and cached users only expire after
+ * {@code user.cache.timeToLive}.</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserChangeStreamListener implements SmartLifecycle {
+
+    /**
+     * The {@code $changeStream} stage is only supported on replica sets.
+     */
+    private static final int CHANGE_STREAMS_UNSUPPORTED = 40573;
+    /**
+     * The resume token is no longer in the oplog.
+     */
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+
+    private static final List<Document> PIPELINE = List.of(
+            new Document("$match", new Document("operationType", new Document("$in", List.of("update", "replace", "delete", "invalidate")))),
+            new Document("$project", new Document("operationType", 1)
+                    .append("ns", 1)
+                    .append("documentKey", 1)
+                    .append("fullDocument.username", 1))
+    );
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final CachingReactiveUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Value("${user.cache.changeStream.enabled}")
+    private boolean enabled;
+    private final AtomicReference<BsonValue> resumeToken = new AtomicReference<>();
+    private volatile Disposable subscription;
+
+    /**
+     * Opens the change stream before the server accepts requests, so no user can be cached before changes are watched.
+     */
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("User change stream disabled, cached users expire after user.cache.timeToLive");
+            return;
+        }
+        subscription = Flux.defer(this::watch)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofMinutes(1))
+                        .transientErrors(true)
+                        .filter(exception -> !hasCode(exception, CHANGE_STREAMS_UNSUPPORTED))
+                        .doBeforeRetry(signal -> log.warn("User change stream interrupted, resuming", signal.failure())))
+                // the stream only ends after an invalidate event, it is then opened again from now
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe(
+                        event -> {
+                        },
+                        exception -> log.warn("Change streams are not available, cached users expire after user.cache.timeToLive: {}",
+                                exception.getMessage())
+                );
+    }
+
+    @Override
+    public void stop() {
+        Disposable subscription = this.subscription;
+        if (subscription != null) {
+            subscription.dispose();
+            this.subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return subscription != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // before the web server, which starts in a later phase
+        return 0;
+    }
+
+    private Flux<ChangeStreamEvent<Document>> watch() {
+        ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .filter(PIPELINE.toArray(Document[]::new))
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        BsonValue token = resumeToken.get();
+        if (token != null) {
+            options.resumeAfter(token);
+        } else {
+            userDetailsService.invalidateAll();
+        }
+        return mongoTemplate.changeStream(null, mongoTemplate.getCollectionName(User.class), options.build(), Document.class)
+                .doOnNext(this::apply)
+                .doOnError(exception -> {
+                    if (hasCode(exception, CHANGE_STREAM_HISTORY_LOST) || hasCode(exception, CHANGE_STREAM_FATAL_ERROR)) {
+                        resumeToken.set(null);
+                    }
+                });
+    }
+
+    private void apply(ChangeStreamEvent<Document> event) {
+        OperationType operationType = event.getOperationType();
+        Document user = event.getBody();
+        String username = user == null ? null : user.getString("username");
+        if (operationType == OperationType.INVALIDATE) {
+            // the collection was dropped or renamed
+            userDetailsService.invalidateAll();
+            resumeToken.set(null);
+            return;
+        }
+        if (username == null) {
+            // a deletion, or an update of a document deleted since
+            userDetailsService.invalidateAll();
+        } else {
+            userDetailsService.invalidate(username);
+            tokenRevocationRegistry.revokeRoleClaims(username);
+        }
+        log.debug("Applied the {} of user {}", operationType, username);
+        resumeToken.set(event.getResumeToken());
+    }
+
+    private static boolean hasCode(Throwable exception, int code) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongoException && mongoException.getCode() == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -1,19 +1,28 @@
 package com.example.mediumreactivewebflux5security_db.config.security;
 
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.ratelimit.LoginRateLimitFilter;
+import com.example.mediumreactivewebflux5security_db.config.ratelimit.LoginRateLimiter;
+import com.example.mediumreactivewebflux5security_db.model.Role;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
-import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity.AuthorizeExchangeSpec;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.security.web.server.context.ServerSecurityContextRepository;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+import static com.example.mediumreactivewebflux5security_db.model.Role.ROLE_ADMIN;
+import static com.example.mediumreactivewebflux5security_db.model.Role.ROLE_METRICS;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
@@ -22,12 +31,14 @@ import static org.springframework.http.HttpStatus.UNAUTHORIZED;
  */
 @Configuration
 @EnableWebFluxSecurity
-@EnableReactiveMethodSecurity
 @RequiredArgsConstructor
 public class WebfluxSecurityConfiguration {
 
     private final AuthenticationManager authenticationManager;
     private final SecurityContextRepository securityContextRepository;
+    private final SecurityMetrics securityMetrics;
+    private final LoginRateLimiter loginRateLimiter;
+    private final RouteAuthorizationManager routeAuthorizationManager;
 
     /**
      * Configures the security web filter for the application.
@@ -41,6 +52,7 @@ public class WebfluxSecurityConfiguration {
      *         <ul>
      *             <li>Set the authentication entry point to return a 401 Unauthorized response.</li>
      *             <li>Set the access denied handler to return a 403 Forbidden response.</li>
+     *             <li>Both count the denial in {@link SecurityMetrics}, by the roles of the caller.</li>
      *         </ul>
      *     </li>
      *
@@ -54,10 +66,16 @@ public class WebfluxSecurityConfiguration {
      *     </li>
      *
      *     <li>Configure authorization rules by calling the {@link ServerHttpSecurity#authorizeExchange() authorizeExchange()} method of the {@link ServerHttpSecurity} object.
-     *         <p>Use the {@link AuthorizeExchangeSpec#pathMatchers(String...)} method to specify the URLs that should be allowed without authentication.</p>
+     *         <p>Use the {@link AuthorizeExchangeSpec#pathMatchers(String...)} method to specify the URLs that should be allowed without authentication.
+     *         The JWKS and the health actuator endpoint are open so that verifiers and probes do not need a token.
+     *         The prometheus actuator endpoint, which reveals traffic and user activity, needs a {@link Role#ROLE_METRICS scraper} or admin token.</p>
      *         <p>Use the {@link AuthorizeExchangeSpec#anyExchange()} method to specify that all other URLs require authentication.</p>
-     *         <p>Use the {@link AuthorizeExchangeSpec.Access#authenticated()} method to specify that authentication is required for the URLs specified by {@link AuthorizeExchangeSpec#anyExchange()}.</p>
+     *         <p>Use the {@link AuthorizeExchangeSpec.Access#access(org.springframework.security.authorization.ReactiveAuthorizationManager) access()} method with the {@link RouteAuthorizationManager},
+     *         which also requires one of the roles declared with {@link HasAnyRole} on the handler of the route, so denied requests are rejected before they are dispatched.</p>
      *     </li>
+     *
+     *     <li>Throttle {@code POST /login} with a {@link LoginRateLimitFilter} placed first in the chain, so rejected attempts
+     *     never reach the user lookup or the password encoder.</li>
      * </ol>
      *
      * @param httpSecurity the HTTP security configuration
@@ -68,17 +86,27 @@ public class WebfluxSecurityConfiguration {
         httpSecurity.csrf().disable()
                 .exceptionHandling()
                 .authenticationEntryPoint((serverWebExchange, exception) ->
-                        Mono.fromRunnable(() -> serverWebExchange.getResponse().setStatusCode(UNAUTHORIZED))
+                        Mono.fromRunnable(() -> {
+                            securityMetrics.recordAccessDenied(UNAUTHORIZED, List.of());
+                            serverWebExchange.getResponse().setStatusCode(UNAUTHORIZED);
+                        })
                 ).accessDeniedHandler((serverWebExchange, deniedException) ->
-                        Mono.fromRunnable(() -> serverWebExchange.getResponse().setStatusCode(FORBIDDEN))
+                        serverWebExchange.getPrincipal()
+                                .cast(Authentication.class)
+                                .doOnNext(principal -> securityMetrics.recordAccessDenied(FORBIDDEN, principal.getAuthorities()))
+                                .then(Mono.fromRunnable(() -> serverWebExchange.getResponse().setStatusCode(FORBIDDEN)))
                 ).and()
                 .authenticationManager(authenticationManager)
                 .securityContextRepository(securityContextRepository)
                 .authorizeExchange(authorizeExchangeSpec ->
                         authorizeExchangeSpec
-                                .pathMatchers("/login").permitAll()
+                                .pathMatchers("/login", "/refresh", "/logout").permitAll()
+                                .pathMatchers("/.well-known/jwks.json").permitAll()
+                                .pathMatchers("/actuator/health").permitAll()
+                                .pathMatchers("/actuator/prometheus").hasAnyAuthority(ROLE_ADMIN.name(), ROLE_METRICS.name())
                                 .pathMatchers(HttpMethod.OPTIONS).permitAll()
-                                .anyExchange().authenticated());
+                                .anyExchange().access(routeAuthorizationManager))
+                .addFilterAt(new LoginRateLimitFilter(loginRateLimiter), SecurityWebFiltersOrder.FIRST);
         return httpSecurity.build();
     }
 
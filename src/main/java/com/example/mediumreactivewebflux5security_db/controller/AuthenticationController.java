@@ -1,47 +1,165 @@
 package com.example.mediumreactivewebflux5security_db.controller;
 
 import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.security.AccountStatus;
+import com.example.mediumreactivewebflux5security_db.config.security.LoginFailureTracker;
+import com.example.mediumreactivewebflux5security_db.config.security.PasswordHasher;
+import com.example.mediumreactivewebflux5security_db.config.security.PasswordHashingRejectedException;
 import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
 import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.RefreshRequest;
+import com.example.mediumreactivewebflux5security_db.service.RefreshTokenService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
 /**
  * <span style='color:white'>Step 7: Create a controller for logging in and getting the JWT token.</span>
  * <p>A Spring {@link RestController} that handles authentication requests. We can also use a service class to make it more readable!</p>
  */
+@Slf4j
 @RestController
 @RequiredArgsConstructor
 public class AuthenticationController {
 
     private final JWTUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final ReactiveUserDetailsService userService;
+    private final ReactiveUserDetailsPasswordService userPasswordService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginFailureTracker loginFailureTracker;
+    private final SecurityMetrics securityMetrics;
 
     /**
-     * Handles login requests and returns a JWT token for the authenticated user.
+     * Handles login requests and returns a short-lived JWT token and a refresh token for the authenticated user.
+     * <p>The password is verified on the {@link PasswordHasher} pool, when that pool is saturated the request is rejected
+     * with 503 and a {@code Retry-After} header. If the stored hash is outdated, it is rehashed in the background once the
+     * password has been verified.</p>
+     * <p>Failed logins are counted by the {@link LoginFailureTracker}. An account locked by too many failures is rejected with
+     * 429 and a {@code Retry-After} header before it is looked up. A disabled, expired or locked account is rejected with 401
+     * before its password is hashed.</p>
      *
      * @param authRequest the {@link AuthRequest} object containing the username and password for the login request
-     * @return a {@link Mono} object containing a {@link ResponseEntity} object with the JWT token for the authenticated user
+     * @return a {@link Mono} object containing a {@link ResponseEntity} object with the tokens for the authenticated user, or
+     * 400 if the username or password is missing
      */
     @PostMapping("/login")
     public Mono<ResponseEntity<AuthResponse>> login(@RequestBody AuthRequest authRequest) {
-        return userService.findByUsername(authRequest.getUsername())
-                .filter(userDetails ->
-                        passwordEncoder.matches(
+        String username = authRequest.getUsername();
+        if (username == null || authRequest.getPassword() == null) {
+            return Mono.just(ResponseEntity.status(BAD_REQUEST).build());
+        }
+        Duration lockedFor = loginFailureTracker.lockedFor(username);
+        if (!lockedFor.isZero()) {
+            return Mono.just(locked(lockedFor));
+        }
+        return userService.findByUsername(username)
+                .filter(AccountStatus::canLogIn)
+                .filterWhen(userDetails ->
+                        passwordHasher.matches(
                                 authRequest.getPassword(),
                                 userDetails.getPassword()
                         )
-                ).map(userDetails -> ResponseEntity.ok(new AuthResponse(jwtUtil.generateToken(userDetails))))
+                ).doOnNext(userDetails -> {
+                    loginFailureTracker.recordSuccess(username);
+                    upgradePasswordEncoding(userDetails, authRequest.getPassword());
+                })
+                .flatMap(userDetails -> refreshTokenService.create(userDetails.getUsername())
+                        .map(grant -> ResponseEntity.ok(new AuthResponse(
+                                jwtUtil.generateToken(userDetails, grant.sessionId()),
+                                grant.refreshToken()
+                        )))
+                )
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    Duration lockout = loginFailureTracker.recordFailure(username);
+                    return lockout.isZero() ? ResponseEntity.status(UNAUTHORIZED).build() : locked(lockout);
+                }))
+                .onErrorResume(PasswordHashingRejectedException.class, exception ->
+                        Mono.just(ResponseEntity.status(SERVICE_UNAVAILABLE).header(RETRY_AFTER, "1").build())
+                );
+    }
+
+    /**
+     * Exchanges a refresh token for a new JWT token and a new refresh token, without checking the password again.
+     * <p>The presented refresh token can not be used again. Presenting it a second time revokes its session.</p>
+     * <p>The account is checked again, a disabled or expired account gets no new tokens. A locked account still does, the
+     * lockout only gates the password login.</p>
+     *
+     * @param refreshRequest the {@link RefreshRequest} object containing the current refresh token
+     * @return a {@link Mono} object containing a {@link ResponseEntity} object with the new tokens, 401 if the refresh token is not
+     * valid or the account not usable, or 400 if it is missing
+     */
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity<AuthResponse>> refresh(@RequestBody RefreshRequest refreshRequest) {
+        if (refreshRequest.getRefreshToken() == null) {
+            return Mono.just(ResponseEntity.status(BAD_REQUEST).build());
+        }
+        return refreshTokenService.rotate(refreshRequest.getRefreshToken())
+                .flatMap(grant -> userService.findByUsername(grant.username())
+                        .filter(AccountStatus::canKeepSession)
+                        .map(userDetails -> ResponseEntity.ok(new AuthResponse(
+                                jwtUtil.generateToken(userDetails, grant.sessionId()),
+                                grant.refreshToken()
+                        )))
+                )
                 .switchIfEmpty(Mono.just(ResponseEntity.status(UNAUTHORIZED).build()));
     }
 
+    /**
+     * Revokes the session of a refresh token, the JWT tokens issued for it are rejected from now on.
+     *
+     * @param refreshRequest the {@link RefreshRequest} object containing the current refresh token
+     * @return a {@link Mono} object containing a 204 {@link ResponseEntity}, whether or not the refresh token was valid, or 400 if
+     * it is missing
+     */
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<Void>> logout(@RequestBody RefreshRequest refreshRequest) {
+        if (refreshRequest.getRefreshToken() == null) {
+            return Mono.just(ResponseEntity.status(BAD_REQUEST).build());
+        }
+        return refreshTokenService.revoke(refreshRequest.getRefreshToken())
+                .thenReturn(ResponseEntity.noContent().build());
+    }
+
+    private <T> ResponseEntity<T> locked(Duration lockedFor) {
+        securityMetrics.recordLoginThrottled("lockout");
+        long seconds = Math.max(1, (lockedFor.toMillis() + 999) / 1000);
+        return ResponseEntity.status(TOO_MANY_REQUESTS).header(RETRY_AFTER, String.valueOf(seconds)).build();
+    }
+
+    /**
+     * Rehashes the password with the current encoder settings if the stored hash is outdated.
+     * <p>This runs detached from the login response, a failure only means the hash is upgraded on a later login.</p>
+     *
+     * @param userDetails the user whose password was just verified
+     * @param rawPassword the verified raw password
+     */
+    private void upgradePasswordEncoding(UserDetails userDetails, String rawPassword) {
+        if (!passwordHasher.upgradeEncoding(userDetails.getPassword())) {
+            return;
+        }
+        passwordHasher.encode(rawPassword)
+                .flatMap(encodedPassword -> userPasswordService.updatePassword(userDetails, encodedPassword))
+                .subscribe(
+                        upgraded -> log.debug("Upgraded the password hash of {}", upgraded.getUsername()),
+                        exception -> log.warn("Could not upgrade the password hash of {}", userDetails.getUsername(), exception)
+                );
+    }
+
 }
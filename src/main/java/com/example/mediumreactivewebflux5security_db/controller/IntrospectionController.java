@@ -0,0 +1,50 @@
+package com.example.mediumreactivewebflux5security_db.controller;
+
+import com.example.mediumreactivewebflux5security_db.config.security.HasAnyRole;
+import com.example.mediumreactivewebflux5security_db.dto.IntrospectionRequest;
+import com.example.mediumreactivewebflux5security_db.dto.TokenIntrospection;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.example.mediumreactivewebflux5security_db.service.TokenIntrospectionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+
+/**
+ * Lets the API gateway check the bearer tokens of its requests in batches, instead of forwarding each request to a
+ * {@code /secured/**} route to learn whether its token is valid.
+ */
+@RestController
+@RequiredArgsConstructor
+public class IntrospectionController {
+
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    @Value("${introspection.maxBatchSize}")
+    private int maxBatchSize;
+
+    /**
+     * Introspects a batch of tokens, see {@link TokenIntrospectionService}.
+     *
+     * @param introspectionRequest the tokens, at most {@code introspection.maxBatchSize}
+     * @return one {@link TokenIntrospection} per token as NDJSON, in the order of the batch, or 413 if the batch is too large
+     */
+    @PostMapping(value = "/introspect", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @HasAnyRole({Role.ROLE_GATEWAY, Role.ROLE_ADMIN})
+    public ResponseEntity<Flux<TokenIntrospection>> introspect(@RequestBody IntrospectionRequest introspectionRequest) {
+        List<String> tokens = introspectionRequest.getTokens() == null ? List.of() : introspectionRequest.getTokens();
+        if (tokens.size() > maxBatchSize) {
+            return ResponseEntity.status(PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(tokenIntrospectionService.introspect(tokens));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.example.mediumreactivewebflux5security_db.controller;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.SigningKeyring;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Publishes the public keys of the {@link SigningKeyring} so that proxies and other services can verify our tokens themselves.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final SigningKeyring signingKeyring;
+
+    @Value("${jwt.signing.rotationInterval}")
+    private long rotationInterval;
+
+    /**
+     * Returns the JSON Web Key Set, serialized once per key rotation.
+     * <p>The next signing key is published one rotation interval ahead, so verifiers may cache the response for that long.</p>
+     *
+     * @return the JWKS, with no keys when tokens are signed with a shared secret
+     */
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<String>> jwks() {
+        return Mono.just(ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(rotationInterval)).cachePublic())
+                .body(signingKeyring.jwks()));
+    }
+
+}
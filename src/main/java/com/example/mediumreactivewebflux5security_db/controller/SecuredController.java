@@ -1,33 +1,47 @@
 package com.example.mediumreactivewebflux5security_db.controller;
 
+import com.example.mediumreactivewebflux5security_db.config.security.HasAnyRole;
 import com.example.mediumreactivewebflux5security_db.dto.Message;
+import com.example.mediumreactivewebflux5security_db.model.Role;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/secured")
 public class SecuredController {
 
+    // the bodies never change, so they are built once rather than per request and serialized once by the JSON encoder,
+    // the virtual thread mode returns the same ones
+    public static final Message USER = new Message("User resource");
+    public static final Message ADMIN = new Message("Admin resource");
+    public static final Message USER_OR_ADMIN = new Message("User or Admin resource");
+
+    /**
+     * The bodies returned as is by every response, {@link Message} is immutable so they cannot change once serialized.
+     */
+    public static final List<Message> CONSTANT_BODIES = List.of(USER, ADMIN, USER_OR_ADMIN);
+
     @GetMapping("/user")
-    @PreAuthorize("hasRole('USER')")
+    @HasAnyRole(Role.ROLE_USER)
     public Mono<ResponseEntity<Message>> user() {
-        return Mono.just(ResponseEntity.ok(new Message("User resource")));
+        return Mono.just(ResponseEntity.ok(USER));
     }
 
     @GetMapping("/admin")
-    @PreAuthorize("hasRole('ADMIN')")
+    @HasAnyRole(Role.ROLE_ADMIN)
     public Mono<ResponseEntity<Message>> admin() {
-        return Mono.just(ResponseEntity.ok(new Message("Admin resource")));
+        return Mono.just(ResponseEntity.ok(ADMIN));
     }
 
     @GetMapping("/resource/user-or-admin")
-    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    @HasAnyRole({Role.ROLE_USER, Role.ROLE_ADMIN})
     public Mono<ResponseEntity<Message>> userOrAdmin() {
-        return Mono.just(ResponseEntity.ok(new Message("User or Admin resource")));
+        return Mono.just(ResponseEntity.ok(USER_OR_ADMIN));
     }
 
 }
@@ -0,0 +1,40 @@
+package com.example.mediumreactivewebflux5security_db.controller;
+
+import com.example.mediumreactivewebflux5security_db.config.security.HasAnyRole;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportRecord;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportResult;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.example.mediumreactivewebflux5security_db.service.UserImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Provisions users in bulk, for admins only.
+ */
+@RestController
+@RequestMapping("/admin/users")
+@RequiredArgsConstructor
+public class UserAdminController {
+
+    private final UserImportService userImportService;
+
+    /**
+     * Creates or replaces the users of an NDJSON upload, one {@link UserImportRecord} per line, keyed by username.
+     * <p>The upload is processed while it is received and one {@link UserImportResult} per line is streamed back as soon as its
+     * batch is written, so neither side holds the whole import in memory.</p>
+     *
+     * @param lines the lines of the upload
+     * @return the result of every non-blank line, as NDJSON in the order of the upload
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @HasAnyRole(Role.ROLE_ADMIN)
+    public Flux<UserImportResult> importUsers(@RequestBody Flux<String> lines) {
+        return userImportService.importUsers(lines);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.example.mediumreactivewebflux5security_db.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A batch of bearer tokens to introspect.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntrospectionRequest {
+    private List<String> tokens;
+}
@@ -1,12 +1,18 @@
 package com.example.mediumreactivewebflux5security_db.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Immutable, so the same instances can be returned by every response and serialized once.
+ */
+@Value
 public class Message {
-    private String content;
+    String content;
+
+    @JsonCreator
+    public Message(@JsonProperty("content") String content) {
+        this.content = content;
+    }
 }
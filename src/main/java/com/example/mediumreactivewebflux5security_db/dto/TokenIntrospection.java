@@ -0,0 +1,38 @@
+package com.example.mediumreactivewebflux5security_db.dto;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Whether one token of an {@link IntrospectionRequest} would be accepted by the {@code /secured/**} routes, and who for.
+ * <p>{@code index} is the position of the token in the batch. An active token has a {@code username}, {@code roles} and an
+ * {@code expiresAt}, an inactive one the {@code rejection} that explains why.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospection {
+
+    private int index;
+    private boolean active;
+    private String username;
+    private Set<Role> roles;
+    private Instant expiresAt;
+    private TokenRejection rejection;
+
+    public static TokenIntrospection active(int index, String username, Set<Role> roles, Instant expiresAt) {
+        return new TokenIntrospection(index, true, username, roles, expiresAt, null);
+    }
+
+    public static TokenIntrospection inactive(int index, TokenRejection rejection) {
+        return new TokenIntrospection(index, false, null, null, null, rejection);
+    }
+}
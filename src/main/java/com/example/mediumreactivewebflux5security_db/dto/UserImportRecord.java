@@ -0,0 +1,21 @@
+package com.example.mediumreactivewebflux5security_db.dto;
+
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One line of an NDJSON user import. {@code enabled} defaults to {@code true} and {@code roles} to {@link Role#ROLE_USER}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRecord {
+    private String username;
+    private String password;
+    private Boolean enabled;
+    private List<Role> roles;
+}
@@ -0,0 +1,25 @@
+package com.example.mediumreactivewebflux5security_db.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of one line of an NDJSON user import, streamed back in the order of the input.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+
+    public enum Status {
+        CREATED, UPDATED, REJECTED, FAILED
+    }
+
+    private long line;
+    private String username;
+    private Status status;
+    private String error;
+}
@@ -0,0 +1,46 @@
+package com.example.mediumreactivewebflux5security_db.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * <p>A login session, the refresh token of a client and the access tokens issued from it all share its id.</p>
+ * <p>Only the SHA-256 hashes of the current refresh token and of the one it replaced are stored. Each refresh replaces the
+ * current one, so an older token of the session no longer matches, and presenting the previous one again reveals a replay. The document is removed by a TTL index once {@link #expiresAt} has passed. The {@link #version}
+ * makes concurrent refreshes with the same token fail instead of both succeeding.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+@CompoundIndex(name = "revoked_updatedAt", def = "{'revoked': 1, 'updatedAt': 1}")
+public class RefreshSession {
+
+    @Id
+    private String sessionId;
+
+    @Indexed
+    private String username;
+    private String tokenHash;
+    /**
+     * The hash of the token exchanged for the current one, {@code null} before the first refresh.
+     */
+    private String previousTokenHash;
+
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expiresAt;
+    private Instant updatedAt;
+    private boolean revoked;
+
+    @Version
+    private Long version;
+
+}
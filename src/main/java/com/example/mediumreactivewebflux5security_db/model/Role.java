@@ -1,5 +1,127 @@
 package com.example.mediumreactivewebflux5security_db.model;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The roles a {@link User} can have.
+ * <p>Roles are encoded in JWTs as a bitmask of their ordinals, so new roles must only ever be appended.</p>
+ * <p>Each role has one shared {@link GrantedAuthority}, and the immutable authority list of every combination of roles is built
+ * once, indexed by role bitmask, so turning roles into authorities never allocates.</p>
+ */
 public enum Role {
-    ROLE_USER, ROLE_ADMIN
+    ROLE_USER, ROLE_ADMIN,
+    /**
+     * The API gateway, allowed to introspect the tokens of other users.
+     */
+    ROLE_GATEWAY,
+    /**
+     * The metrics scraper, allowed to read {@code /actuator/prometheus}.
+     */
+    ROLE_METRICS;
+
+    private static final Role[] VALUES = values();
+    private static final int ALL = (1 << VALUES.length) - 1;
+    private static final List<List<GrantedAuthority>> AUTHORITIES = authoritiesTable();
+
+    private final GrantedAuthority authority = new SimpleGrantedAuthority(name());
+
+    /**
+     * @return the bit of this role in a role bitmask
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return the granted authority of this role, always the same instance
+     */
+    public GrantedAuthority authority() {
+        return authority;
+    }
+
+    /**
+     * @param mask a role bitmask, unknown bits are ignored
+     * @return the shared immutable authorities of the roles set in the bitmask, in role order
+     */
+    public static List<GrantedAuthority> authoritiesOf(int mask) {
+        return AUTHORITIES.get(mask & ALL);
+    }
+
+    /**
+     * @param roles some roles
+     * @return the shared immutable authorities of the roles, in role order
+     */
+    public static List<GrantedAuthority> authoritiesOf(Collection<Role> roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= role.bit();
+        }
+        return AUTHORITIES.get(mask);
+    }
+
+    /**
+     * Encodes the given authorities as a role bitmask, authorities that are not a {@link Role} are ignored.
+     * <p>The shared authorities of the roles are recognized by identity, any other authority by name.</p>
+     *
+     * @param authorities the granted authorities of a user
+     * @return the role bitmask
+     */
+    public static int maskOf(Collection<? extends GrantedAuthority> authorities) {
+        int mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            mask |= bitOf(authority);
+        }
+        return mask;
+    }
+
+    /**
+     * Decodes a role bitmask, unknown bits are ignored.
+     *
+     * @param mask the role bitmask
+     * @return the roles set in the bitmask
+     */
+    public static Set<Role> fromMask(int mask) {
+        EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+        for (Role role : VALUES) {
+            if ((mask & role.bit()) != 0) {
+                roles.add(role);
+            }
+        }
+        return roles;
+    }
+
+    private static int bitOf(GrantedAuthority authority) {
+        for (Role role : VALUES) {
+            if (role.authority == authority) {
+                return role.bit();
+            }
+        }
+        for (Role role : VALUES) {
+            if (role.name().equals(authority.getAuthority())) {
+                return role.bit();
+            }
+        }
+        return 0;
+    }
+
+    private static List<List<GrantedAuthority>> authoritiesTable() {
+        List<List<GrantedAuthority>> table = new ArrayList<>(ALL + 1);
+        for (int mask = 0; mask <= ALL; mask++) {
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            for (Role role : VALUES) {
+                if ((mask & role.bit()) != 0) {
+                    authorities.add(role.authority);
+                }
+            }
+            table.add(List.copyOf(authorities));
+        }
+        return List.copyOf(table);
+    }
 }
@@ -5,15 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
 /**
@@ -21,7 +21,8 @@ import java.util.stream.Collectors;
  * <p>
  * Create a class called {@link User User} with the @Data, @NoArgsConstructor, @AllArgsConstructor, and @Document annotations.
  * Implement the {@link UserDetails UserDetails} interface to use the {@link User User} class for authentication and authorization.
- * Add fields for userId, username, password, enabled, and roles.
+ * Add fields for userId, username, password, enabled, roles, and when the account expires, the password expires and the lockout ends. The username is unique and indexed, every login and
+ * token check looks a user up by it.
  * Override the {@link UserDetails UserDetails} methods.
  * </p>
  * <p>
@@ -38,17 +39,36 @@ public class User implements UserDetails {
     @Id
     private String userId;
 
+    @Indexed(unique = true)
     private String username;
     private String password;
 
     private Boolean enabled;
     private List<Role> roles;
 
+    /**
+     * When the account stops being usable, {@code null} if never.
+     */
+    private Instant accountExpiresAt;
+    /**
+     * When the password must be changed, {@code null} if never.
+     */
+    private Instant credentialsExpireAt;
+    /**
+     * Until when logins are refused after too many failed attempts, {@code null} or in the past if the account is not locked.
+     */
+    private Instant lockedUntil;
+
+    /**
+     * Creates a user that never expires and is not locked.
+     */
+    public User(String userId, String username, String password, Boolean enabled, List<Role> roles) {
+        this(userId, username, password, enabled, roles, null, null, null);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return this.roles.stream().map(
-                authority -> new SimpleGrantedAuthority(authority.name())
-        ).collect(Collectors.toList());
+        return this.roles == null ? Role.authoritiesOf(0) : Role.authoritiesOf(this.roles);
     }
 
     @Override
@@ -63,17 +83,17 @@ public class User implements UserDetails {
 
     @Override
     public boolean isAccountNonExpired() {
-        return false;
+        return !hasPassed(accountExpiresAt);
     }
 
     @Override
     public boolean isAccountNonLocked() {
-        return false;
+        return lockedUntil == null || hasPassed(lockedUntil);
     }
 
     @Override
     public boolean isCredentialsNonExpired() {
-        return false;
+        return !hasPassed(credentialsExpireAt);
     }
 
     @Override
@@ -81,4 +101,12 @@ public class User implements UserDetails {
         return this.enabled;
     }
 
+    /**
+     * @param instant an instant, or {@code null} for never
+     * @return whether the instant has been reached
+     */
+    static boolean hasPassed(Instant instant) {
+        return instant != null && !Instant.now().isBefore(instant);
+    }
+
 }
@@ -0,0 +1,76 @@
+package com.example.mediumreactivewebflux5security_db.model;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The part of a {@link User} document needed to authenticate, read by
+ * {@link com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository#findCredentialsByUsername(String)
+ * findCredentialsByUsername} without the rest of the document.
+ * <p>The expiry and lock checks are evaluated against the current time on every call, like those of {@link User}, so a cached
+ * instance stops being locked once {@code lockedUntil} has passed.</p>
+ *
+ * @param username            the username
+ * @param password            the password hash
+ * @param enabled             whether the user may log in
+ * @param roles               the roles of the user, empty if the document has none
+ * @param accountExpiresAt    when the account stops being usable, {@code null} if never
+ * @param credentialsExpireAt when the password must be changed, {@code null} if never
+ * @param lockedUntil         until when logins are refused, {@code null} if the account is not locked
+ */
+public record UserCredentials(String username, String password, Boolean enabled, List<Role> roles,
+                              Instant accountExpiresAt, Instant credentialsExpireAt, Instant lockedUntil) implements UserDetails {
+
+    public UserCredentials {
+        if (roles == null) {
+            roles = List.of();
+        }
+    }
+
+    /**
+     * @return the roles as granted authorities, in the same form as {@link User#getAuthorities()}
+     */
+    public Collection<? extends GrantedAuthority> authorities() {
+        return Role.authoritiesOf(roles);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities();
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return !User.hasPassed(accountExpiresAt);
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return lockedUntil == null || User.hasPassed(lockedUntil);
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return !User.hasPassed(credentialsExpireAt);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(enabled);
+    }
+
+}
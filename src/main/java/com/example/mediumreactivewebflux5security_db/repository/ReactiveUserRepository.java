@@ -1,10 +1,65 @@
 package com.example.mediumreactivewebflux5security_db.repository;
 
 import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.model.UserCredentials;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.data.mongodb.repository.Update;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.Collection;
+
 public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
-    Mono<UserDetails> findByUsername(String username);
+
+    /**
+     * The fields of a user read to authenticate it, those of {@link UserCredentials}.
+     */
+    String CREDENTIALS_FIELDS = "{ '_id': 0, 'username': 1, 'password': 1, 'enabled': 1, 'roles': 1, "
+            + "'accountExpiresAt': 1, 'credentialsExpireAt': 1, 'lockedUntil': 1 }";
+
+    Mono<User> findByUsername(String username);
+
+    /**
+     * Looks a user up on the unique {@code username} index and only reads the fields needed to authenticate.
+     *
+     * @param username the username
+     * @return the credentials of the user, or an empty {@link Mono} if the user does not exist
+     */
+    @Query(value = "{ 'username': ?0 }", fields = CREDENTIALS_FIELDS)
+    Mono<UserCredentials> findCredentialsByUsername(String username);
+
+    /**
+     * Looks several users up with a single {@code $in} query on the unique {@code username} index, reading the same fields
+     * as {@link #findCredentialsByUsername(String)}.
+     *
+     * @param usernames the usernames
+     * @return the credentials of the users that exist, in no particular order
+     */
+    @Query(value = "{ 'username': { '$in': ?0 } }", fields = CREDENTIALS_FIELDS)
+    Flux<UserCredentials> findCredentialsByUsernameIn(Collection<String> usernames);
+
+    /**
+     * Sets when the lockout of a user ends, without reading or rewriting the rest of the document.
+     *
+     * @param username    the username
+     * @param lockedUntil until when logins are refused
+     * @return a {@link Mono} with the number of updated documents, {@code 0} if the user does not exist
+     */
+    @Query("{ 'username': ?0 }")
+    @Update("{ '$set': { 'lockedUntil': ?1 } }")
+    Mono<Long> updateLockedUntilByUsername(String username, Instant lockedUntil);
+
+    /**
+     * Replaces the password hash of a user in a single update, only if the stored hash is still the expected one.
+     *
+     * @param username         the username
+     * @param expectedPassword the stored password hash the new one replaces
+     * @param password         the new password hash
+     * @return a {@link Mono} with the number of updated documents, {@code 0} if the user does not exist or its password changed
+     */
+    @Query("{ 'username': ?0, 'password': ?1 }")
+    @Update("{ '$set': { 'password': ?2 } }")
+    Mono<Long> updatePasswordByUsernameAndPassword(String username, String expectedPassword, String password);
 }
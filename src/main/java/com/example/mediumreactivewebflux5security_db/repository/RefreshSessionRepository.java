@@ -0,0 +1,16 @@
+package com.example.mediumreactivewebflux5security_db.repository;
+
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface RefreshSessionRepository extends ReactiveMongoRepository<RefreshSession, String> {
+    Flux<RefreshSession> findByRevokedTrueAndUpdatedAtAfter(Instant since);
+
+    Mono<Boolean> existsBySessionIdAndRevokedTrue(String sessionId);
+
+    Flux<RefreshSession> findByUsernameAndRevokedFalse(String username);
+}
@@ -0,0 +1,168 @@
+package com.example.mediumreactivewebflux5security_db.service;
+
+import com.example.mediumreactivewebflux5security_db.config.security.Digests;
+import com.example.mediumreactivewebflux5security_db.config.security.SessionRevocationList;
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * <p>Issues, rotates and revokes the refresh tokens of {@link RefreshSession}s.</p>
+ * <p>A refresh token is {@code <session id>.<secret>}. Exchanging it is a lookup by id and a SHA-256 comparison, no password hash
+ * is involved. Every exchange replaces the secret, and presenting the secret that was exchanged last revokes the whole
+ * session, since either the client or whoever copied its token is replaying it. Any other secret is merely rejected: the
+ * session id is the {@code sid} claim of every access token, so a made up token must not be enough to end someone's session.</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    /**
+     * A refresh token handed to a client.
+     *
+     * @param username     the user the session belongs to
+     * @param sessionId    the session, to be put in the {@code sid} claim of the access tokens issued with it
+     * @param refreshToken the refresh token itself, only its hash is stored
+     */
+    public record Grant(String username, String sessionId, String refreshToken) {
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshSessionRepository refreshSessionRepository;
+    private final SessionRevocationList sessionRevocationList;
+
+    @Value("${jwt.refresh.expirationTime}")
+    private long expirationTime;
+
+    /**
+     * Starts a session for a user who just logged in.
+     *
+     * @param username the user
+     * @return the refresh token of the new session
+     */
+    public Mono<Grant> create(String username) {
+        return Mono.defer(() -> {
+            String sessionId = randomToken(16);
+            String secret = randomToken(32);
+            Instant now = Instant.now();
+            RefreshSession session = new RefreshSession(sessionId, username, hash(secret), null, now.plusSeconds(expirationTime), now, false, null);
+            return refreshSessionRepository.save(session)
+                    .map(saved -> new Grant(username, sessionId, sessionId + "." + secret));
+        });
+    }
+
+    /**
+     * Exchanges a refresh token for a new one of the same session, extending the session by {@code jwt.refresh.expirationTime}.
+     *
+     * @param refreshToken the refresh token presented by the client
+     * @return the new refresh token, or an empty {@link Mono} if the token is missing, unknown, expired, revoked or was already exchanged
+     */
+    public Mono<Grant> rotate(String refreshToken) {
+        int separator = refreshToken == null ? -1 : refreshToken.indexOf('.');
+        if (separator <= 0) {
+            return Mono.empty();
+        }
+        String sessionId = refreshToken.substring(0, separator);
+        String presentedHash = hash(refreshToken.substring(separator + 1));
+        Instant now = Instant.now();
+        return refreshSessionRepository.findById(sessionId)
+                .filter(session -> !session.isRevoked() && session.getExpiresAt().isAfter(now))
+                .flatMap(session -> {
+                    if (!matches(session.getTokenHash(), presentedHash)) {
+                        if (session.getPreviousTokenHash() != null && matches(session.getPreviousTokenHash(), presentedHash)) {
+                            log.warn("Refresh token of session {} reused, revoking the session", sessionId);
+                            return revoke(session).then(Mono.<Grant>empty());
+                        }
+                        return Mono.<Grant>empty();
+                    }
+                    String secret = randomToken(32);
+                    session.setPreviousTokenHash(session.getTokenHash());
+                    session.setTokenHash(hash(secret));
+                    session.setExpiresAt(now.plusSeconds(expirationTime));
+                    session.setUpdatedAt(now);
+                    return refreshSessionRepository.save(session)
+                            .map(saved -> new Grant(saved.getUsername(), sessionId, sessionId + "." + secret));
+                })
+                .onErrorResume(OptimisticLockingFailureException.class, exception -> Mono.empty());
+    }
+
+    /**
+     * Ends the session of a refresh token, the access tokens issued with it are rejected from now on.
+     *
+     * @param refreshToken the current refresh token of the session
+     * @return a {@link Mono} completing once the session is revoked, or right away if the token is missing or does not match any session
+     */
+    public Mono<Void> revoke(String refreshToken) {
+        int separator = refreshToken == null ? -1 : refreshToken.indexOf('.');
+        if (separator <= 0) {
+            return Mono.empty();
+        }
+        String presentedHash = hash(refreshToken.substring(separator + 1));
+        return refreshSessionRepository.findById(refreshToken.substring(0, separator))
+                .filter(session -> !session.isRevoked() && matches(session.getTokenHash(), presentedHash))
+                .flatMap(this::revoke);
+    }
+
+    /**
+     * Ends every session of a user, like a {@link #revoke(String) logout} of each of them.
+     *
+     * @param username the user whose password was replaced
+     * @return a {@link Mono} completing once all the sessions of the user are revoked
+     */
+    public Mono<Void> revokeAll(String username) {
+        return refreshSessionRepository.findByUsernameAndRevokedFalse(username)
+                .flatMap(this::revoke)
+                .then();
+    }
+
+    private Mono<Void> revoke(RefreshSession session) {
+        session.setRevoked(true);
+        session.setUpdatedAt(Instant.now());
+        return refreshSessionRepository.save(session)
+                .doOnNext(saved -> sessionRevocationList.revoke(saved.getSessionId()))
+                .onErrorResume(OptimisticLockingFailureException.class, exception -> revokeLatest(session.getSessionId()))
+                .then();
+    }
+
+    /**
+     * Retries a revocation that lost a race with a concurrent refresh of the same session.
+     */
+    private Mono<RefreshSession> revokeLatest(String sessionId) {
+        return refreshSessionRepository.findById(sessionId)
+                .flatMap(latest -> {
+                    latest.setRevoked(true);
+                    latest.setUpdatedAt(Instant.now());
+                    return refreshSessionRepository.save(latest);
+                })
+                .doOnNext(saved -> sessionRevocationList.revoke(saved.getSessionId()));
+    }
+
+    private static boolean matches(String storedHash, String presentedHash) {
+        return MessageDigest.isEqual(storedHash.getBytes(StandardCharsets.US_ASCII), presentedHash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String randomToken(int bytes) {
+        byte[] random = new byte[bytes];
+        RANDOM.nextBytes(random);
+        return ENCODER.encodeToString(random);
+    }
+
+    private static String hash(String secret) {
+        return ENCODER.encodeToString(Digests.sha256(secret));
+    }
+
+}
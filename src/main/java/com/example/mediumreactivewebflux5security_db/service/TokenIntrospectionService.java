@@ -0,0 +1,125 @@
+package com.example.mediumreactivewebflux5security_db.service;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.InvalidTokenException;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.security.AccountStatus;
+import com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService;
+import com.example.mediumreactivewebflux5security_db.config.security.SessionRevocationList;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.dto.TokenIntrospection;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * <p>Tells an API gateway whether a batch of bearer tokens would be accepted by the {@code /secured/**} routes, with the
+ * same checks as the {@code AuthenticationManager}, so the gateway does not have to forward a request to find out.</p>
+ * <p>The signatures are verified in parallel on the {@link Schedulers#parallel() parallel} scheduler. The users of the
+ * tokens whose roles are not taken from the token itself are then resolved together: the distinct usernames are looked up
+ * in the user details cache, and those it misses are loaded with a single {@code $in} query. A batch costs at most one
+ * database round trip for its users, plus one per token whose session may have been revoked. A looked up user that is disabled
+ * or expired makes its tokens inactive, as the {@code AuthenticationManager} rejects them. A locked one does not.</p>
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenIntrospectionService {
+
+    private final JWTUtil jwtUtil;
+    private final CachingReactiveUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final SessionRevocationList sessionRevocationList;
+    private final SecurityMetrics securityMetrics;
+
+    /**
+     * @param tokens the bearer tokens, without the {@code Bearer } prefix
+     * @return one result per token, in the order of the batch, each emitted as soon as it and the ones before it are known
+     */
+    public Flux<TokenIntrospection> introspect(List<String> tokens) {
+        // by index, a JSON array may hold nulls
+        return Flux.range(0, tokens.size())
+                .flatMapSequential(index -> Mono.fromCallable(() -> verify(tokens.get(index))).subscribeOn(Schedulers.parallel()))
+                .collectList()
+                .flatMapMany(verifications -> {
+                    Set<String> usernames = new HashSet<>();
+                    for (Verification verification : verifications) {
+                        if (verification.claims() != null && embeddedRoles(verification.claims()).isEmpty()) {
+                            usernames.add(verification.claims().getSubject());
+                        }
+                    }
+                    Mono<Map<String, UserDetails>> users = usernames.isEmpty()
+                            ? Mono.just(Map.of())
+                            : securityMetrics.timeUserLookup(userDetailsService.findAllByUsername(usernames)).cache();
+                    return Flux.range(0, verifications.size())
+                            .flatMapSequential(index -> introspect(index, verifications.get(index), users));
+                });
+    }
+
+    private Mono<TokenIntrospection> introspect(int index, Verification verification, Mono<Map<String, UserDetails>> users) {
+        if (verification.rejection() != null) {
+            return Mono.just(TokenIntrospection.inactive(index, verification.rejection()));
+        }
+        Claims claims = verification.claims();
+        String sessionId = jwtUtil.extractSessionId(claims);
+        Mono<Boolean> revoked = sessionId != null && sessionRevocationList.mightBeRevoked(sessionId)
+                ? sessionRevocationList.isRevoked(sessionId)
+                : Mono.just(false);
+        return revoked.flatMap(isRevoked -> isRevoked
+                ? Mono.just(TokenIntrospection.inactive(index, TokenRejection.REVOKED_SESSION))
+                : introspect(index, claims, users));
+    }
+
+    private Mono<TokenIntrospection> introspect(int index, Claims claims, Mono<Map<String, UserDetails>> users) {
+        OptionalInt embeddedRoles = embeddedRoles(claims);
+        if (embeddedRoles.isPresent()) {
+            return Mono.just(active(index, claims, embeddedRoles.getAsInt()));
+        }
+        return users.mapNotNull(byUsername -> byUsername.get(claims.getSubject()))
+                .map(userDetails -> AccountStatus.canKeepSession(userDetails)
+                        ? active(index, claims, Role.maskOf(userDetails.getAuthorities()))
+                        : TokenIntrospection.inactive(index, TokenRejection.INACTIVE_ACCOUNT))
+                .defaultIfEmpty(TokenIntrospection.inactive(index, TokenRejection.UNKNOWN_USER));
+    }
+
+    private static TokenIntrospection active(int index, Claims claims, int roleMask) {
+        return TokenIntrospection.active(index, claims.getSubject(), Role.fromMask(roleMask), claims.getExpiration().toInstant());
+    }
+
+    /**
+     * @return the roles embedded in the token, if the {@link TokenRevocationRegistry} still trusts them
+     */
+    private OptionalInt embeddedRoles(Claims claims) {
+        OptionalInt embeddedRoles = jwtUtil.extractRoleMask(claims);
+        return embeddedRoles.isPresent() && tokenRevocationRegistry.trustsRoleClaims(claims) ? embeddedRoles : OptionalInt.empty();
+    }
+
+    private Verification verify(String token) {
+        if (token == null) {
+            return new Verification(null, TokenRejection.MALFORMED);
+        }
+        try {
+            return new Verification(jwtUtil.extractAllClaims(token), null);
+        } catch (InvalidTokenException exception) {
+            return new Verification(null, exception.getRejection());
+        }
+    }
+
+    /**
+     * The verified claims of a token, or why it was rejected.
+     */
+    private record Verification(Claims claims, TokenRejection rejection) {
+    }
+
+}
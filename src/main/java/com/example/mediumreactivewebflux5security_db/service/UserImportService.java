@@ -0,0 +1,211 @@
+package com.example.mediumreactivewebflux5security_db.service;
+
+import com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportRecord;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportResult;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportResult.Status;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Creates or replaces users from a stream of NDJSON lines, keyed by username.</p>
+ * <p>Lines are parsed and validated one by one, their passwords are hashed on a dedicated pool of
+ * {@code user.import.hashingConcurrency} threads, separate from the login pool so an import never makes logins fail, and the
+ * users are written with one unordered bulk upsert per {@code user.import.batchSize} lines. Every stage only requests what the
+ * next one can take, so at most a couple of batches are held in memory whatever the size of the upload, and a slow database
+ * slows down the reading of the request body.</p>
+ * <p>One result is emitted per non-blank line, in the order of the input. A line that can not be parsed or is invalid is
+ * {@link Status#REJECTED rejected}, a user the database refused to write has {@link Status#FAILED failed}, neither stops the
+ * import. Replaced users are evicted from the user details cache and their embedded role claims stop being trusted.</p>
+ * <p>An imported password is an administrator reset: the refresh sessions of a replaced user are revoked, so a refresh token
+ * obtained with the old password stops issuing access tokens.</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final CachingReactiveUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final RefreshTokenService refreshTokenService;
+
+    @Value("${user.import.batchSize}")
+    private int batchSize;
+    @Value("${user.import.hashingConcurrency}")
+    private int hashingConcurrency;
+    private Scheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        // the queue is bounded by the concurrency of flatMapSequential in importUsers()
+        this.scheduler = Schedulers.newBoundedElastic(hashingConcurrency, Integer.MAX_VALUE, "user-import");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    /**
+     * @param lines the lines of the upload, each one a JSON {@link UserImportRecord}, blank lines are skipped
+     * @return the result of every non-blank line, in the order of the input
+     */
+    public Flux<UserImportResult> importUsers(Flux<String> lines) {
+        return lines.index()
+                .filter(line -> !line.getT2().isBlank())
+                .flatMapSequential(line -> prepare(line.getT1() + 1, line.getT2()), hashingConcurrency)
+                .buffer(batchSize)
+                .concatMap(this::write, 1);
+    }
+
+    /**
+     * A parsed line, either ready to be written or already rejected.
+     */
+    private record Row(long line, String username, Document document, String error) {
+    }
+
+    private Mono<Row> prepare(long line, String json) {
+        UserImportRecord record;
+        try {
+            record = objectMapper.readValue(json, UserImportRecord.class);
+        } catch (JsonProcessingException exception) {
+            // the message of the exception quotes the line, password included
+            return Mono.just(new Row(line, null, null, "not a JSON user record"));
+        }
+        String username = record.getUsername();
+        if (username == null || username.isBlank()) {
+            return Mono.just(new Row(line, null, null, "username is missing"));
+        }
+        if (record.getPassword() == null || record.getPassword().isEmpty()) {
+            return Mono.just(new Row(line, username, null, "password is missing"));
+        }
+        return Mono.fromCallable(() -> new Row(line, username, toDocument(record), null))
+                .subscribeOn(scheduler);
+    }
+
+    private Document toDocument(UserImportRecord record) {
+        User user = new User(
+                null,
+                record.getUsername(),
+                passwordEncoder.encode(record.getPassword()),
+                record.getEnabled() == null || record.getEnabled(),
+                record.getRoles() == null || record.getRoles().isEmpty() ? List.of(Role.ROLE_USER) : List.copyOf(record.getRoles())
+        );
+        Document document = new Document();
+        // without an _id, so replacing an existing user keeps its id
+        mongoTemplate.getConverter().write(user, document);
+        return document;
+    }
+
+    private Flux<UserImportResult> write(List<Row> rows) {
+        List<Row> writable = new ArrayList<>(rows.size());
+        List<WriteModel<Document>> writes = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (row.document() != null) {
+                writable.add(row);
+                writes.add(new ReplaceOneModel<>(Filters.eq("username", row.username()), row.document(), new ReplaceOptions().upsert(true)));
+            }
+        }
+        if (writes.isEmpty()) {
+            return Flux.fromIterable(results(rows, writable, BulkWriteResult.unacknowledged(), List.of(), null));
+        }
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(writes, new BulkWriteOptions().ordered(false))))
+                .map(result -> results(rows, writable, result, List.of(), null))
+                .onErrorResume(MongoBulkWriteException.class, exception ->
+                        Mono.just(results(rows, writable, exception.getWriteResult(), exception.getWriteErrors(), null)))
+                .onErrorResume(exception -> {
+                    log.warn("Could not write a batch of {} imported users", writes.size(), exception);
+                    return Mono.just(results(rows, writable, BulkWriteResult.unacknowledged(), List.of(), exception.getMessage()));
+                })
+                .flatMapMany(results -> revokeSessions(results).thenMany(Flux.fromIterable(results)));
+    }
+
+    /**
+     * Revokes the refresh sessions of the replaced users of a batch. A failure only leaves the sessions of that user alive, the
+     * user itself has been written.
+     */
+    private Mono<Void> revokeSessions(List<UserImportResult> results) {
+        return Flux.fromIterable(results)
+                .filter(result -> result.getStatus() == Status.UPDATED)
+                .flatMap(result -> refreshTokenService.revokeAll(result.getUsername())
+                        .onErrorResume(exception -> {
+                            log.warn("Could not revoke the refresh sessions of the imported user {}", result.getUsername(), exception);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    /**
+     * @param rows         the batch, in the order of the input
+     * @param writable     the rows of the batch that were written, in the order of the bulk write
+     * @param result       the result of the bulk write
+     * @param errors       the writes the database refused, by their index in the bulk write
+     * @param batchFailure why the whole bulk write failed, or {@code null}
+     * @return the result of every row of the batch
+     */
+    private List<UserImportResult> results(List<Row> rows, List<Row> writable, BulkWriteResult result,
+                                           List<BulkWriteError> errors, String batchFailure) {
+        String[] writeErrors = new String[writable.size()];
+        boolean[] inserted = new boolean[writable.size()];
+        errors.forEach(error -> writeErrors[error.getIndex()] = error.getMessage());
+        if (result.wasAcknowledged()) {
+            for (BulkWriteUpsert upsert : result.getUpserts()) {
+                inserted[upsert.getIndex()] = true;
+            }
+        }
+
+        List<UserImportResult> results = new ArrayList<>(rows.size());
+        int index = 0;
+        for (Row row : rows) {
+            if (row.document() == null) {
+                results.add(new UserImportResult(row.line(), row.username(), Status.REJECTED, row.error()));
+                continue;
+            }
+            int writeIndex = index++;
+            if (batchFailure != null || writeErrors[writeIndex] != null) {
+                String error = batchFailure != null ? batchFailure : writeErrors[writeIndex];
+                results.add(new UserImportResult(row.line(), row.username(), Status.FAILED, error));
+            } else if (inserted[writeIndex]) {
+                results.add(new UserImportResult(row.line(), row.username(), Status.CREATED, null));
+            } else {
+                userDetailsService.invalidate(row.username());
+                tokenRevocationRegistry.revokeRoleClaims(row.username());
+                results.add(new UserImportResult(row.line(), row.username(), Status.UPDATED, null));
+            }
+        }
+        return results;
+    }
+
+}
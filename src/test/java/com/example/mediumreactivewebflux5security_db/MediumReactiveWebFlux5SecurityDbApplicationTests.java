@@ -3,7 +3,8 @@ package com.example.mediumreactivewebflux5security_db;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// the servlet stack is also on the classpath with the virtual-threads profile
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
 class MediumReactiveWebFlux5SecurityDbApplicationTests {
 
     @Test
@@ -0,0 +1,57 @@
+package com.example.mediumreactivewebflux5security_db.config;
+
+import com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService;
+import com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ApplicationConfigurationTest {
+
+    private final ReactiveUserRepository reactiveUserRepository = mock(ReactiveUserRepository.class);
+    private final CachingReactiveUserDetailsService userDetailsService = mock(CachingReactiveUserDetailsService.class);
+    private final ApplicationConfiguration configuration = new ApplicationConfiguration(reactiveUserRepository);
+    private final ReactiveUserDetailsPasswordService passwordService = configuration.reactiveUserDetailsPasswordService(userDetailsService);
+
+    @Test
+    void reportsOutdatedHashesForUpgrade() {
+        PasswordEncoder passwordEncoder = configuration.passwordEncoder(5, 0);
+        String outdated = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertThat(passwordEncoder.matches("secret", outdated)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(outdated)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(passwordEncoder.encode("secret"))).isFalse();
+    }
+
+    @Test
+    void storesTheUpgradedHashInPlaceOfTheVerifiedOne() {
+        UserDetails user = User.withUsername("user").password("old").roles("USER").build();
+        when(reactiveUserRepository.updatePasswordByUsernameAndPassword("user", "old", "new")).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(passwordService.updatePassword(user, "new"))
+                .assertNext(upgraded -> assertThat(upgraded.getPassword()).isEqualTo("new"))
+                .verifyComplete();
+        verify(userDetailsService).invalidate("user");
+    }
+
+    @Test
+    void dropsTheUpgradeWhenThePasswordChangedConcurrently() {
+        UserDetails user = User.withUsername("user").password("old").roles("USER").build();
+        when(reactiveUserRepository.updatePasswordByUsernameAndPassword("user", "old", "new")).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(passwordService.updatePassword(user, "new")).verifyComplete();
+        verify(userDetailsService, never()).invalidate("user");
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.example.mediumreactivewebflux5security_db.config;
+
+import com.example.mediumreactivewebflux5security_db.dto.UserImportRecord;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.example.mediumreactivewebflux5security_db.model.UserCredentials;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    {
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersTheJjwtImplementationsAndServices() {
+        assertThat(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of("io.jsonwebtoken.impl.DefaultJwtParserBuilder"))
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of("io.jsonwebtoken.impl.crypto.RsaProvider"))
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_METHODS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Deserializer")).accepts(hints);
+    }
+
+    @Test
+    void registersTheBoundTypesAndTheirFields() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(UserImportRecord.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(UserCredentials.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(Role.class)).accepts(hints);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.example.mediumreactivewebflux5security_db.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.reactive.ReactorResourceFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NettyServerConfigurationTest {
+
+    private ReactorResourceFactory factory;
+
+    @AfterEach
+    void destroy() {
+        factory.destroy();
+    }
+
+    @Test
+    void createsDedicatedResourcesOfTheConfiguredSizes() {
+        factory = new NettyServerConfiguration().reactorServerResourceFactory(1, 2, 50, 1000, 30);
+        factory.afterPropertiesSet();
+
+        assertThat(factory.isUseGlobalResources()).isFalse();
+        assertThat(factory.getLoopResources()).isNotNull();
+        assertThat(factory.getConnectionProvider().maxConnections()).isEqualTo(50);
+    }
+
+    @Test
+    void fallsBackToReactorDefaultsWithoutSizes() {
+        factory = new NettyServerConfiguration().reactorServerResourceFactory(0, 0, 500, 45_000, 30);
+        factory.afterPropertiesSet();
+
+        assertThat(factory.getLoopResources().onServerSelect(false)).isNotNull();
+    }
+
+}
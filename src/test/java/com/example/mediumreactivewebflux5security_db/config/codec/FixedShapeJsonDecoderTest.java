@@ -0,0 +1,93 @@
+package com.example.mediumreactivewebflux5security_db.config.codec;
+
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.Message;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FixedShapeJsonDecoderTest {
+
+    // the unknown properties setting of Spring Boot's ObjectMapper
+    private final ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private final FixedShapeJsonDecoder decoder = new FixedShapeJsonDecoder(new Jackson2JsonDecoder(objectMapper));
+
+    @Test
+    void readsTheSameDtosAsJackson() throws Exception {
+        for (String json : new String[]{
+                "{\"username\":\"user\",\"password\":\"secret\"}",
+                " {\n \"password\" : \"p\\\"w\\\\\\u00e9\\ud83d\\udd11\" , \"username\":\"caf\u00e9\" } ",
+                "{\"username\":\"user\",\"extra\":{\"nested\":[1,2,{\"username\":\"other\"}]},\"password\":null}",
+                "{\"username\":42,\"password\":true}",
+                "{\"username\":\"first\",\"username\":\"last\"}",
+                "{}"}) {
+            assertThat(decode(json, AuthRequest.class)).isEqualTo(objectMapper.readValue(json, AuthRequest.class));
+        }
+        String response = "{\"token\":\"a.b.c\",\"refreshToken\":null}";
+        assertThat(decode(response, AuthResponse.class)).isEqualTo(objectMapper.readValue(response, AuthResponse.class));
+        String message = "{\"content\":\"User resource\"}";
+        assertThat(decode(message, Message.class)).isEqualTo(new Message("User resource"))
+                .isEqualTo(objectMapper.readValue(message, Message.class));
+    }
+
+    @Test
+    void readsANullBodyAsEmpty() {
+        assertThat(decoder.decodeToMono(Flux.just(buffer("null")), ResolvableType.forClass(AuthRequest.class),
+                MediaType.APPLICATION_JSON, Map.of()).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedBodies() {
+        for (String json : new String[]{"{\"username\":\"user\"", "[]", "\"user\"", "{\"username\":[\"user\"]}", "not json"}) {
+            assertThatThrownBy(() -> decode(json, AuthRequest.class)).as(json).isInstanceOf(DecodingException.class);
+        }
+    }
+
+    @Test
+    void readsBodiesSplitAcrossBuffers() {
+        Object decoded = decoder.decodeToMono(Flux.just(buffer("{\"username\":\"us"), buffer("er\",\"password\":\"secret\"}")),
+                ResolvableType.forClass(AuthRequest.class), MediaType.APPLICATION_JSON, Map.of()).block();
+
+        assertThat(decoded).isEqualTo(new AuthRequest("user", "secret"));
+    }
+
+    @Test
+    void onlyDecodesTheFixedShapeDtos() {
+        assertThat(decoder.canDecode(ResolvableType.forClass(AuthRequest.class), MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(decoder.canDecode(ResolvableType.forClass(AuthRequest.class), MediaType.TEXT_PLAIN)).isFalse();
+        assertThat(decoder.canDecode(ResolvableType.forClass(Object.class), MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void readsStreamsFromJsonArrays() {
+        assertThat(decoder.decode(Flux.just(buffer("[{\"content\":\"a\"},{\"content\":\"b\"}]")),
+                ResolvableType.forClass(Message.class), MediaType.APPLICATION_JSON, Map.of()).collectList().block())
+                .containsExactly(new Message("a"), new Message("b"));
+    }
+
+    private Object decode(String json, Class<?> type) {
+        return decoder.decode(buffer(json), ResolvableType.forClass(type), MediaType.APPLICATION_JSON, Map.of());
+    }
+
+    private DataBuffer buffer(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return bufferFactory.allocateBuffer(bytes.length).write(bytes);
+    }
+
+}
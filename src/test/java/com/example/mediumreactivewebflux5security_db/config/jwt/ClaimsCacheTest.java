@@ -0,0 +1,79 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClaimsCacheTest {
+
+    private ClaimsCache claimsCache;
+
+    @BeforeEach
+    void setUp() {
+        claimsCache = new ClaimsCache();
+        ReflectionTestUtils.setField(claimsCache, "maximumSize", 100L);
+        claimsCache.init();
+    }
+
+    @Test
+    void parsesEachTokenOnlyOnceUntilItExpires() {
+        AtomicInteger parses = new AtomicInteger();
+        Claims claims = Jwts.claims().setSubject("user").setExpiration(new Date(System.currentTimeMillis() + 60_000));
+
+        Claims first = claimsCache.get("token", token -> {
+            parses.incrementAndGet();
+            return claims;
+        });
+        Claims cached = claimsCache.get("token", token -> {
+            parses.incrementAndGet();
+            return claims;
+        });
+
+        assertThat(cached).isSameAs(first).isEqualTo(claims);
+        assertThat(parses).hasValue(1);
+        assertThat(claimsCache.stats().hitCount()).isEqualTo(1);
+        assertThat(claimsCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sharesTheClaimsReadOnly() {
+        Claims claims = Jwts.claims().setSubject("user").setExpiration(new Date(System.currentTimeMillis() + 60_000));
+        claims.put("rol", 1);
+        Claims cached = claimsCache.get("token", token -> claims);
+
+        assertThatThrownBy(() -> cached.setSubject("admin")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> cached.put("rol", 3)).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> cached.remove("sub")).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> cached.entrySet().clear()).isInstanceOf(UnsupportedOperationException.class);
+        claims.setSubject("admin");
+
+        Claims next = claimsCache.get("token", token -> claims);
+        assertThat(next.getSubject()).isEqualTo("user");
+        assertThat(next.get("rol", Integer.class)).isOne();
+        assertThat(next.getExpiration()).isEqualTo(cached.getExpiration());
+    }
+
+    @Test
+    void doesNotCacheRejectedTokens() {
+        AtomicInteger parses = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> claimsCache.get("tampered", token -> {
+                parses.incrementAndGet();
+                throw new IllegalArgumentException("bad signature");
+            })).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        assertThat(parses).hasValue(2);
+        assertThat(claimsCache.estimatedSize()).isZero();
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Builds a {@link JWTUtil} signing with the {@code HS512} secret of {@code application.yml}, outside a Spring context.
+ */
+public final class JwtFixtures {
+
+    private JwtFixtures() {
+    }
+
+    /**
+     * @param rolesInToken whether the roles of the user are embedded in the tokens
+     * @return a JWTUtil issuing tokens valid for 15 minutes
+     */
+    public static JWTUtil jwtUtil(boolean rolesInToken) {
+        SigningKeyring signingKeyring = new SigningKeyring();
+        ReflectionTestUtils.setField(signingKeyring, "secret", "ThisIsSecretForJWTHS512SignatureAlgorithmThatMUSTHave64ByteLength");
+        ReflectionTestUtils.setField(signingKeyring, "expirationTime", 900L);
+        ReflectionTestUtils.setField(signingKeyring, "algorithmName", "HS512");
+        signingKeyring.init();
+        ClaimsCache claimsCache = new ClaimsCache();
+        ReflectionTestUtils.setField(claimsCache, "maximumSize", 100L);
+        claimsCache.init();
+        JWTUtil jwtUtil = new JWTUtil(claimsCache, signingKeyring);
+        ReflectionTestUtils.setField(jwtUtil, "expirationTime", "900");
+        ReflectionTestUtils.setField(jwtUtil, "rolesInToken", rolesInToken);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+}
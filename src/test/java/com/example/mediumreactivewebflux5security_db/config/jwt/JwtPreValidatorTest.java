@@ -0,0 +1,110 @@
+package com.example.mediumreactivewebflux5security_db.config.jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtPreValidatorTest {
+
+    private final SigningKeyring signingKeyring = signingKeyring();
+    private final JwtPreValidator preValidator = new JwtPreValidator(signingKeyring);
+
+    @Test
+    void acceptsASignedUnexpiredToken() {
+        String token = token(new Date(System.currentTimeMillis() + 60_000));
+
+        assertThat(preValidator.checkStructure(token)).isNull();
+        assertThat(preValidator.checkContent(token)).isNull();
+    }
+
+    @Test
+    void rejectsTokensThatAreNotThreeSegments() {
+        assertThat(preValidator.checkStructure("")).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(preValidator.checkStructure("abc")).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(preValidator.checkStructure("a.b")).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(preValidator.checkStructure("a..c")).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(preValidator.checkStructure("a.b.")).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(preValidator.checkStructure("a.b.c.d")).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(preValidator.checkStructure("a.b." + "c".repeat(JwtPreValidator.MAX_TOKEN_LENGTH))).isEqualTo(TokenRejection.MALFORMED);
+    }
+
+    @Test
+    void rejectsCharactersOutsideBase64Url() {
+        assertThat(preValidator.checkStructure("a.b+c.d")).isEqualTo(TokenRejection.INVALID_ENCODING);
+        assertThat(preValidator.checkStructure("a.b.c=")).isEqualTo(TokenRejection.INVALID_ENCODING);
+    }
+
+    @Test
+    void rejectsHeadersThatAreNotJson() {
+        assertThat(preValidator.checkContent(encode("not json") + "." + encode("{}") + ".c")).isEqualTo(TokenRejection.INVALID_ENCODING);
+        assertThat(preValidator.checkContent("a.b.c")).isEqualTo(TokenRejection.INVALID_ENCODING);
+    }
+
+    @Test
+    void rejectsOtherAlgorithms() {
+        String payload = encode("{\"sub\":\"user\"}");
+        String kid = signingKeyring.current().kid();
+
+        assertThat(preValidator.checkContent(header("none", kid) + "." + payload + ".c")).isEqualTo(TokenRejection.UNSUPPORTED_ALGORITHM);
+        assertThat(preValidator.checkContent(header("HS256", kid) + "." + payload + ".c")).isEqualTo(TokenRejection.UNSUPPORTED_ALGORITHM);
+        assertThat(preValidator.checkContent(encode("{\"kid\":\"" + kid + "\"}") + "." + payload + ".c")).isEqualTo(TokenRejection.UNSUPPORTED_ALGORITHM);
+    }
+
+    @Test
+    void rejectsUnknownKeys() {
+        String payload = encode("{\"sub\":\"user\"}");
+
+        assertThat(preValidator.checkContent(header("HS512", "unknown") + "." + payload + ".c")).isEqualTo(TokenRejection.UNKNOWN_KEY);
+    }
+
+    @Test
+    void resolvesTokensWithoutKeyIdToTheSecret() {
+        String payload = encode("{\"sub\":\"user\"}");
+
+        assertThat(preValidator.checkContent(encode("{\"alg\":\"HS512\"}") + "." + payload + ".c")).isNull();
+    }
+
+    @Test
+    void rejectsExpiredTokensBeforeCheckingTheSignature() {
+        String token = token(new Date(1000));
+
+        assertThat(preValidator.checkStructure(token)).isNull();
+        assertThat(preValidator.checkContent(token)).isEqualTo(TokenRejection.EXPIRED);
+    }
+
+    private String token(Date expiration) {
+        SigningKeyring.SigningKey key = signingKeyring.current();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, key.kid())
+                .setSubject("user")
+                .setIssuedAt(new Date(0))
+                .setExpiration(expiration)
+                .signWith(key.signingKey(), key.algorithm())
+                .compact();
+    }
+
+    private static String header(String alg, String kid) {
+        return encode("{\"alg\":\"" + alg + "\",\"kid\":\"" + kid + "\"}");
+    }
+
+    private static SigningKeyring signingKeyring() {
+        SigningKeyring signingKeyring = new SigningKeyring();
+        ReflectionTestUtils.setField(signingKeyring, "secret", "ThisIsSecretForJWTHS512SignatureAlgorithmThatMUSTHave64ByteLength");
+        ReflectionTestUtils.setField(signingKeyring, "expirationTime", 28800L);
+        ReflectionTestUtils.setField(signingKeyring, "algorithmName", "HS512");
+        signingKeyring.init();
+        return signingKeyring;
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
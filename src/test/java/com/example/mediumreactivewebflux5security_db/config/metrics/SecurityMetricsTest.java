@@ -0,0 +1,63 @@
+package com.example.mediumreactivewebflux5security_db.config.metrics;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics.TokenOutcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+
+class SecurityMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private SecurityMetrics securityMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        securityMetrics = new SecurityMetrics(registry);
+    }
+
+    @Test
+    void mapsRejectionsToOutcomes() {
+        assertThat(TokenOutcome.of(TokenRejection.EXPIRED)).isEqualTo(TokenOutcome.EXPIRED);
+        assertThat(TokenOutcome.of(TokenRejection.INVALID_SIGNATURE)).isEqualTo(TokenOutcome.INVALID_SIGNATURE);
+        assertThat(TokenOutcome.of(TokenRejection.INVALID_ENCODING)).isEqualTo(TokenOutcome.MALFORMED);
+        assertThat(TokenOutcome.of(TokenRejection.UNSUPPORTED_ALGORITHM)).isEqualTo(TokenOutcome.MALFORMED);
+    }
+
+    @Test
+    void countsRejectionsByReason() {
+        securityMetrics.recordTokenRejection(TokenRejection.UNSUPPORTED_ALGORITHM);
+
+        assertThat(registry.get("auth.token.rejected").tag("reason", "unsupported_algorithm").counter().count()).isOne();
+        assertThat(registry.get("auth.token.rejected").tag("reason", "expired").counter().count()).isZero();
+    }
+
+    @Test
+    void timesLookupsByOutcome() {
+        StepVerifier.create(securityMetrics.timeUserLookup(Mono.just("user"))).expectNext("user").verifyComplete();
+        StepVerifier.create(securityMetrics.timeUserLookup(Mono.empty())).verifyComplete();
+        StepVerifier.create(securityMetrics.timeUserLookup(Mono.error(new IllegalStateException()))).verifyError();
+
+        assertThat(registry.get("auth.user.lookup").tag("outcome", "found").timer().count()).isOne();
+        assertThat(registry.get("auth.user.lookup").tag("outcome", "not_found").timer().count()).isOne();
+        assertThat(registry.get("auth.user.lookup").tag("outcome", "error").timer().count()).isOne();
+    }
+
+    @Test
+    void tagsAccessDeniedWithTheRolesOfTheCaller() {
+        securityMetrics.recordAccessDenied(FORBIDDEN, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        securityMetrics.recordAccessDenied(FORBIDDEN, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+        assertThat(registry.get("auth.access.denied").tags("status", "403", "roles", "ROLE_USER").counter().count()).isEqualTo(2);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.example.mediumreactivewebflux5security_db.config.mongo;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionPoolGuardTest {
+
+    private final ServerId serverId = new ServerId(new ClusterId(), new ServerAddress());
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ConnectionPoolGuard guard = new ConnectionPoolGuard(registry, 2);
+
+    @Test
+    void rejectsLookupsWithoutSubscribingWhileTheWaitQueueIsFull() {
+        guard.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(serverId));
+        guard.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(serverId));
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        StepVerifier.create(guard.guard(Mono.fromSupplier(subscriptions::incrementAndGet)))
+                .verifyError(ConnectionPoolSaturatedException.class);
+        StepVerifier.create(guard.guard(Flux.just(1).doOnSubscribe(subscription -> subscriptions.incrementAndGet())))
+                .verifyError(ConnectionPoolSaturatedException.class);
+
+        assertThat(subscriptions).hasValue(0);
+        assertThat(registry.counter("mongodb.driver.pool.rejected").count()).isEqualTo(2);
+    }
+
+    @Test
+    void admitsLookupsAgainOnceCheckOutsComplete() {
+        guard.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(serverId));
+        guard.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(serverId));
+        guard.connectionCheckedOut(new ConnectionCheckedOutEvent(new ConnectionId(serverId)));
+        guard.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(serverId, ConnectionCheckOutFailedEvent.Reason.TIMEOUT));
+
+        assertThat(guard.waiting()).isZero();
+        StepVerifier.create(guard.guard(Mono.just("user"))).expectNext("user").verifyComplete();
+    }
+
+    @Test
+    void neverRejectsWithoutALimit() {
+        ConnectionPoolGuard unbounded = new ConnectionPoolGuard(registry, 0);
+        for (int i = 0; i < 1000; i++) {
+            unbounded.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(serverId));
+        }
+
+        StepVerifier.create(unbounded.guard(Mono.just("user"))).expectNext("user").verifyComplete();
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.example.mediumreactivewebflux5security_db.config.mongo;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.ReadPreference;
+import com.mongodb.TaggableReadPreference;
+import com.mongodb.connection.ConnectionPoolSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class MongoClientConfigurationTest {
+
+    @Test
+    void appliesThePoolAndTimeoutSettings() {
+        ConnectionPoolGuard guard = new ConnectionPoolGuard(new SimpleMeterRegistry(), 500);
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        new MongoClientConfiguration()
+                .mongoClientSettingsCustomizer(guard, 50, 5, 4, 250, 60, 2000, 5000, 3000)
+                .customize(builder);
+        MongoClientSettings settings = builder.build();
+
+        ConnectionPoolSettings pool = settings.getConnectionPoolSettings();
+        assertThat(pool.getMaxSize()).isEqualTo(50);
+        assertThat(pool.getMinSize()).isEqualTo(5);
+        assertThat(pool.getMaxConnecting()).isEqualTo(4);
+        assertThat(pool.getMaxWaitTime(TimeUnit.MILLISECONDS)).isEqualTo(250);
+        assertThat(pool.getConnectionPoolListeners()).containsExactly(guard);
+        assertThat(settings.getSocketSettings().getReadTimeout(TimeUnit.MILLISECONDS)).isEqualTo(5000);
+        assertThat(settings.getClusterSettings().getServerSelectionTimeout(TimeUnit.MILLISECONDS)).isEqualTo(3000);
+    }
+
+    @Test
+    void boundsTheStalenessOfSecondaryReads() {
+        assertThat(MongoClientConfiguration.readPreference("primary", 0)).isEqualTo(ReadPreference.primary());
+
+        ReadPreference secondaryPreferred = MongoClientConfiguration.readPreference("secondaryPreferred", 120);
+
+        assertThat(secondaryPreferred.getName()).isEqualTo("secondaryPreferred");
+        assertThat(((TaggableReadPreference) secondaryPreferred).getMaxStaleness(TimeUnit.SECONDS)).isEqualTo(120);
+        assertThatIllegalArgumentException().isThrownBy(() -> MongoClientConfiguration.readPreference("primary", 120));
+    }
+
+    @Test
+    void rejectsStalenessBoundsTheServerWouldRefuse() {
+        assertThat(MongoClientConfiguration.readPreference("nearest", 90)).isNotNull();
+        assertThatIllegalArgumentException().isThrownBy(() -> MongoClientConfiguration.readPreference("secondaryPreferred", 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> MongoClientConfiguration.readPreference("secondaryPreferred", 89));
+        assertThatIllegalArgumentException().isThrownBy(() -> MongoClientConfiguration.readPreference("secondaryPreferred", -1));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRateLimitBackendTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final InMemoryRateLimitBackend backend = new InMemoryRateLimitBackend(now::get);
+    private final RateLimit limit = new RateLimit(3, Duration.ofSeconds(1));
+
+    @Test
+    void allowsABurstThenOneRequestPerInterval() {
+        assertThat(acquire("a")).isZero();
+        assertThat(acquire("a")).isZero();
+        assertThat(acquire("a")).isZero();
+        assertThat(acquire("a")).isEqualTo(Duration.ofSeconds(1));
+
+        now.addAndGet(Duration.ofMillis(400).toNanos());
+        assertThat(acquire("a")).isEqualTo(Duration.ofMillis(600));
+
+        now.addAndGet(Duration.ofMillis(600).toNanos());
+        assertThat(acquire("a")).isZero();
+        assertThat(acquire("a")).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void keepsSeparateBuckets() {
+        acquire("a");
+        acquire("a");
+        acquire("a");
+
+        assertThat(acquire("b")).isZero();
+    }
+
+    @Test
+    void evictsOnlyBucketsThatAreFullAgain() {
+        acquire("a");
+        acquire("b");
+        acquire("b");
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        backend.evictIdle();
+
+        assertThat(backend.size()).isOne();
+        assertThat(acquire("a")).isZero();
+    }
+
+    private Duration acquire(String key) {
+        return backend.tryAcquire(key, limit).block();
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.example.mediumreactivewebflux5security_db.config.ratelimit;
+
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+class LoginRateLimitFilterTest {
+
+    private final List<String> bodiesSeenByTheChain = new ArrayList<>();
+    private final WebFilterChain chain = exchange -> DataBufferUtils.join(exchange.getRequest().getBody())
+            .doOnNext(buffer -> bodiesSeenByTheChain.add(buffer.toString(StandardCharsets.UTF_8)))
+            .then();
+
+    @Test
+    void throttlesAUsernameAcrossAddresses() {
+        LoginRateLimitFilter filter = filter(100, 2);
+
+        assertThat(login(filter, "10.0.0.1", "victim").getResponse().getStatusCode()).isNull();
+        assertThat(login(filter, "10.0.0.2", "victim").getResponse().getStatusCode()).isNull();
+        MockServerWebExchange throttled = login(filter, "10.0.0.3", "victim");
+
+        assertThat(throttled.getResponse().getStatusCode()).isEqualTo(TOO_MANY_REQUESTS);
+        assertThat(throttled.getResponse().getHeaders().getFirst(RETRY_AFTER)).isEqualTo("30");
+        assertThat(bodiesSeenByTheChain).containsExactly(body("victim"), body("victim"));
+    }
+
+    @Test
+    void throttlesAnAddressAcrossUsernames() {
+        LoginRateLimitFilter filter = filter(2, 100);
+
+        login(filter, "10.0.0.1", "a");
+        login(filter, "10.0.0.1", "b");
+
+        assertThat(login(filter, "10.0.0.1", "c").getResponse().getStatusCode()).isEqualTo(TOO_MANY_REQUESTS);
+        assertThat(login(filter, "10.0.0.2", "c").getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void leavesOtherRequestsAlone() {
+        LoginRateLimitFilter filter = filter(0, 0);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/secured/user"));
+
+        filter.filter(exchange, ignored -> Mono.empty()).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void rejectsOversizedBodies() {
+        LoginRateLimitFilter filter = filter(100, 100);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 1234))
+                .body("x".repeat(LoginRateLimitFilter.MAX_BODY_BYTES + 1)));
+
+        filter.filter(exchange, chain).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(PAYLOAD_TOO_LARGE);
+    }
+
+    private MockServerWebExchange login(LoginRateLimitFilter filter, String address, String username) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login")
+                .remoteAddress(new InetSocketAddress(address, 1234))
+                .body(body(username)));
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static String body(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"secret\"}";
+    }
+
+    /**
+     * @param addressCapacity  attempts allowed per address, refilled at 2 per minute
+     * @param usernameCapacity attempts allowed per username, refilled at 2 per minute
+     */
+    private static LoginRateLimitFilter filter(long addressCapacity, long usernameCapacity) {
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter(
+                new InMemoryRateLimitBackend(),
+                new SecurityMetrics(new SimpleMeterRegistry()),
+                Math.max(1, addressCapacity), 2, Math.max(1, usernameCapacity), 2
+        );
+        return new LoginRateLimitFilter(loginRateLimiter);
+    }
+
+}
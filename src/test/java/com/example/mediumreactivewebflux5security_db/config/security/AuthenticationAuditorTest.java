@@ -0,0 +1,79 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthenticationAuditorTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("audit.authentication");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final AuthenticationAuditor authenticationAuditor = new AuthenticationAuditor();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void alwaysLogsFailuresWithAFingerprintInsteadOfTheToken() {
+        ReflectionTestUtils.setField(authenticationAuditor, "successSampleRate", 0.0);
+
+        authenticationAuditor.failure(TokenRejection.EXPIRED, null, "header.payload.signature");
+
+        assertThat(appender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(Level.WARN);
+            assertThat(keyValues(event))
+                    .containsEntry("outcome", "failure")
+                    .containsEntry("reason", "expired")
+                    .containsEntry("token", AuthenticationAuditor.fingerprint("header.payload.signature"));
+            assertThat(event.getFormattedMessage()).doesNotContain("signature");
+        });
+    }
+
+    @Test
+    void samplesSuccesses() {
+        ReflectionTestUtils.setField(authenticationAuditor, "successSampleRate", 0.0);
+        authenticationAuditor.success("user", "header.payload.signature");
+        assertThat(appender.list).isEmpty();
+
+        ReflectionTestUtils.setField(authenticationAuditor, "successSampleRate", 1.0);
+        authenticationAuditor.success("user", "header.payload.signature");
+        assertThat(appender.list).singleElement()
+                .satisfies(event -> assertThat(keyValues(event)).containsEntry("outcome", "success").containsEntry("username", "user"));
+    }
+
+    @Test
+    void fingerprintsAreShortAndStable() {
+        assertThat(AuthenticationAuditor.fingerprint("a.b.c"))
+                .hasSize(16)
+                .isEqualTo(AuthenticationAuditor.fingerprint("a.b.c"))
+                .isNotEqualTo(AuthenticationAuditor.fingerprint("a.b.d"));
+    }
+
+    private static Map<String, Object> keyValues(ILoggingEvent event) {
+        return event.getKeyValuePairs().stream()
+                .filter(pair -> pair.value != null)
+                .collect(Collectors.toMap(pair -> pair.key, pair -> pair.value));
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.InvalidTokenException;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JwtFixtures;
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AuthenticationManagerTest {
+
+    private final Map<String, UserDetails> database = new ConcurrentHashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final TokenRevocationRegistry tokenRevocationRegistry = new TokenRevocationRegistry();
+
+    {
+        ReflectionTestUtils.setField(tokenRevocationRegistry, "maxStaleness", 300L);
+    }
+
+    @Test
+    void authenticatesWithTheRolesOfTheLookedUpUser() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        database.put("admin", user("admin", true, Role.ROLE_USER, Role.ROLE_ADMIN));
+
+        Authentication authentication = authenticationManager(jwtUtil).authenticate(bearer(jwtUtil.generateToken(database.get("admin")))).block();
+
+        assertThat(authentication.getName()).isEqualTo("admin");
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void rejectsTokensOfDisabledUsers() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        String token = jwtUtil.generateToken(user("user", true, Role.ROLE_USER));
+        database.put("user", user("user", false, Role.ROLE_USER));
+
+        StepVerifier.create(authenticationManager(jwtUtil).authenticate(bearer(token)))
+                .expectErrorSatisfies(error -> assertThat(((InvalidTokenException) error).getRejection()).isEqualTo(TokenRejection.INACTIVE_ACCOUNT))
+                .verify();
+    }
+
+    @Test
+    void acceptsTokensOfLockedUsers() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        String token = jwtUtil.generateToken(user("user", true, Role.ROLE_USER));
+        database.put("user", User.withUserDetails(user("user", true, Role.ROLE_USER)).accountLocked(true).build());
+
+        Authentication authentication = authenticationManager(jwtUtil).authenticate(bearer(token)).block();
+
+        assertThat(authentication.getName()).isEqualTo("user");
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void rejectsTokensOfUnknownUsers() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+
+        StepVerifier.create(authenticationManager(jwtUtil).authenticate(bearer(jwtUtil.generateToken(user("ghost", true, Role.ROLE_USER)))))
+                .expectErrorSatisfies(error -> assertThat(((InvalidTokenException) error).getRejection()).isEqualTo(TokenRejection.UNKNOWN_USER))
+                .verify();
+    }
+
+    @Test
+    void trustsEmbeddedRolesWithoutLookingTheUserUp() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(true);
+        String token = jwtUtil.generateToken(user("admin", true, Role.ROLE_USER, Role.ROLE_ADMIN));
+
+        Authentication authentication = authenticationManager(jwtUtil).authenticate(bearer(token)).block();
+
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(lookups).hasValue(0);
+    }
+
+    @Test
+    void looksTheUserUpAgainOnceItsRoleClaimsAreRevoked() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(true);
+        String token = jwtUtil.generateToken(user("admin", true, Role.ROLE_USER, Role.ROLE_ADMIN));
+        database.put("admin", user("admin", true, Role.ROLE_USER));
+        tokenRevocationRegistry.revokeRoleClaims("admin");
+
+        Authentication authentication = authenticationManager(jwtUtil).authenticate(bearer(token)).block();
+
+        assertThat(authentication.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void rejectsTokensWithRevokedRoleClaimsOfDisabledUsers() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(true);
+        String token = jwtUtil.generateToken(user("user", true, Role.ROLE_USER));
+        database.put("user", user("user", false, Role.ROLE_USER));
+        tokenRevocationRegistry.revokeRoleClaims("user");
+
+        StepVerifier.create(authenticationManager(jwtUtil).authenticate(bearer(token)))
+                .expectErrorSatisfies(error -> assertThat(((InvalidTokenException) error).getRejection()).isEqualTo(TokenRejection.INACTIVE_ACCOUNT))
+                .verify();
+    }
+
+    private AuthenticationManager authenticationManager(JWTUtil jwtUtil) {
+        return new AuthenticationManager(
+                jwtUtil,
+                username -> {
+                    lookups.incrementAndGet();
+                    return Mono.justOrEmpty(database.get(username));
+                },
+                tokenRevocationRegistry,
+                new SecurityMetrics(new SimpleMeterRegistry()),
+                mock(AuthenticationAuditor.class),
+                mock(SessionRevocationList.class)
+        );
+    }
+
+    private static Authentication bearer(String token) {
+        return new UsernamePasswordAuthenticationToken(token, token);
+    }
+
+    private static UserDetails user(String username, boolean enabled, Role... roles) {
+        return User.withUsername(username).password("hash").disabled(!enabled)
+                .authorities(Role.authoritiesOf(List.of(roles))).build();
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptCostCalibratorTest {
+
+    @Test
+    void keepsTheMinimumCostWhenItIsSlowEnough() {
+        assertThat(BCryptCostCalibrator.calibrate(4, Duration.ZERO)).isEqualTo(4);
+    }
+
+    @Test
+    void raisesTheCostUntilTheTargetIsReached() {
+        assertThat(BCryptCostCalibrator.calibrate(4, Duration.ofMillis(20))).isBetween(5, BCryptCostCalibrator.MAX_STRENGTH - 1);
+    }
+
+    @Test
+    void neverGoesAboveTheMaximumCost() {
+        assertThat(BCryptCostCalibrator.calibrate(BCryptCostCalibrator.MAX_STRENGTH, Duration.ofHours(1)))
+                .isEqualTo(BCryptCostCalibrator.MAX_STRENGTH);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class CachingReactiveUserDetailsServiceTest {
+
+    private final UserDetails user = User.withUsername("user").password("hash").roles("USER").build();
+
+    @Test
+    void coalescesConcurrentMissesIntoOneLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Sinks.One<UserDetails> database = Sinks.one();
+        CachingReactiveUserDetailsService service = new CachingReactiveUserDetailsService(username -> {
+            loads.incrementAndGet();
+            return database.asMono();
+        }, Duration.ofMinutes(5), 100);
+
+        Mono<UserDetails> first = service.findByUsername("user");
+        Mono<UserDetails> second = service.findByUsername("user");
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> database.tryEmitValue(user))
+                .assertNext(both -> assertThat(both.getT1()).isSameAs(both.getT2()).isSameAs(user))
+                .verifyComplete();
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadsAgainAfterInvalidation() {
+        AtomicInteger loads = new AtomicInteger();
+        CachingReactiveUserDetailsService service = new CachingReactiveUserDetailsService(username -> {
+            loads.incrementAndGet();
+            return Mono.just(user);
+        }, Duration.ofMinutes(5), 100);
+
+        service.findByUsername("user").block();
+        service.findByUsername("user").block();
+        service.invalidate("user");
+        service.findByUsername("user").block();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheUnknownUsers() {
+        AtomicInteger loads = new AtomicInteger();
+        CachingReactiveUserDetailsService service = new CachingReactiveUserDetailsService(username -> {
+            loads.incrementAndGet();
+            return Mono.empty();
+        }, Duration.ofMinutes(5), 100);
+
+        StepVerifier.create(service.findByUsername("ghost")).verifyComplete();
+        StepVerifier.create(service.findByUsername("ghost")).verifyComplete();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadsTheMissingUsersOfABulkLookupTogether() {
+        UserDetails admin = User.withUsername("admin").password("hash").roles("USER", "ADMIN").build();
+        List<Set<String>> bulkLoads = new ArrayList<>();
+        CachingReactiveUserDetailsService service = new CachingReactiveUserDetailsService(username -> Mono.just(user), usernames -> {
+            bulkLoads.add(Set.copyOf(usernames));
+            return Flux.fromIterable(usernames).filter(username -> !username.equals("ghost")).map(username -> username.equals("admin") ? admin : user);
+        }, Duration.ofMinutes(5), 100);
+
+        service.findByUsername("user").block();
+        Map<String, UserDetails> found = service.findAllByUsername(List.of("user", "admin", "ghost")).block();
+
+        assertThat(found).containsOnly(entry("user", user), entry("admin", admin));
+        assertThat(bulkLoads).containsExactly(Set.of("admin", "ghost"));
+        assertThat(service.findAllByUsername(List.of("admin")).block()).containsOnlyKeys("admin");
+        assertThat(bulkLoads).hasSize(1);
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DigestsTest {
+
+    @Test
+    void digestsWithSha256() {
+        assertThat(HexFormat.of().formatHex(Digests.sha256("abc")))
+                .isEqualTo("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+    }
+
+}
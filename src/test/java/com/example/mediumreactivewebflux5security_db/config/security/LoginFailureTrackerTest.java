@@ -0,0 +1,120 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoginFailureTrackerTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+    private static final Duration DURATION = Duration.ofSeconds(300);
+
+    private final AtomicLong now = new AtomicLong(WINDOW.toMillis() * 1000);
+    private final ReactiveUserRepository reactiveUserRepository = Mockito.mock(ReactiveUserRepository.class);
+    private final LoginFailureTracker tracker = new LoginFailureTracker(reactiveUserRepository, 3, WINDOW, DURATION, now::get);
+
+    {
+        when(reactiveUserRepository.updateLockedUntilByUsername(anyString(), any())).thenReturn(Mono.just(1L));
+    }
+
+    @Test
+    void locksOnceTheMaximumNumberOfFailuresIsReached() {
+        assertThat(tracker.recordFailure("user")).isZero();
+        assertThat(tracker.recordFailure("user")).isZero();
+        assertThat(tracker.lockedFor("user")).isZero();
+
+        assertThat(tracker.recordFailure("user")).isEqualTo(DURATION);
+
+        assertThat(tracker.lockedFor("user")).isEqualTo(DURATION);
+        assertThat(tracker.lockedFor("other")).isZero();
+        verify(reactiveUserRepository).updateLockedUntilByUsername("user", Instant.ofEpochMilli(now.get() + DURATION.toMillis()));
+    }
+
+    @Test
+    void unlocksAfterTheDuration() {
+        lock("user");
+
+        now.addAndGet(DURATION.toMillis() - 1000);
+        assertThat(tracker.lockedFor("user")).isEqualTo(Duration.ofSeconds(1));
+        now.addAndGet(1000);
+        assertThat(tracker.lockedFor("user")).isZero();
+        assertThat(tracker.recordFailure("user")).isZero();
+    }
+
+    @Test
+    void weighsThePreviousWindowByItsOverlap() {
+        tracker.recordFailure("user");
+        tracker.recordFailure("user");
+
+        // half of the previous window still overlaps the sliding window, the two failures count as one
+        now.addAndGet(WINDOW.toMillis() * 3 / 2);
+        assertThat(tracker.recordFailure("user")).isZero();
+        assertThat(tracker.recordFailure("user")).isEqualTo(DURATION);
+    }
+
+    @Test
+    void forgetsFailuresOlderThanTwoWindows() {
+        tracker.recordFailure("user");
+        tracker.recordFailure("user");
+
+        now.addAndGet(WINDOW.toMillis() * 2);
+        assertThat(tracker.recordFailure("user")).isZero();
+        assertThat(tracker.recordFailure("user")).isZero();
+        verify(reactiveUserRepository, never()).updateLockedUntilByUsername(anyString(), any());
+    }
+
+    @Test
+    void successClearsTheFailures() {
+        tracker.recordFailure("user");
+        tracker.recordFailure("user");
+
+        tracker.recordSuccess("user");
+
+        assertThat(tracker.recordFailure("user")).isZero();
+        assertThat(tracker.recordFailure("user")).isZero();
+    }
+
+    @Test
+    void persistsALockoutOnce() {
+        lock("user");
+
+        tracker.recordFailure("user");
+        tracker.recordFailure("user");
+        tracker.recordFailure("user");
+
+        verify(reactiveUserRepository, times(1)).updateLockedUntilByUsername(anyString(), any());
+    }
+
+    @Test
+    void evictsOnlyIdleUnlockedUsernames() {
+        lock("locked");
+        tracker.recordFailure("idle");
+        now.addAndGet(WINDOW.toMillis() * 2);
+        tracker.recordFailure("recent");
+
+        tracker.evictIdle();
+
+        assertThat(tracker.size()).isEqualTo(2);
+        assertThat(tracker.lockedFor("locked")).isPositive();
+    }
+
+    private void lock(String username) {
+        tracker.recordFailure(username);
+        tracker.recordFailure(username);
+        tracker.recordFailure(username);
+    }
+
+}
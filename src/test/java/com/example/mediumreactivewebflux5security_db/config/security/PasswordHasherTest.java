@@ -0,0 +1,106 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        PasswordEncoder blockingEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                // like BCrypt, ignores interrupts
+                boolean interrupted = false;
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        passwordHasher = new PasswordHasher(blockingEncoder);
+        ReflectionTestUtils.setField(passwordHasher, "concurrency", 1);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 1);
+        passwordHasher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        passwordHasher.destroy();
+    }
+
+    @Test
+    void rejectsHashesBeyondConcurrencyAndQueueCapacity() {
+        Mono<Boolean> running = passwordHasher.matches("secret", "secret").cache();
+        Mono<Boolean> queued = passwordHasher.matches("secret", "other").cache();
+        running.subscribe();
+        queued.subscribe();
+
+        StepVerifier.create(passwordHasher.matches("secret", "secret"))
+                .verifyError(PasswordHashingRejectedException.class);
+
+        release.countDown();
+        assertThat(running.block()).isTrue();
+        assertThat(queued.block()).isFalse();
+    }
+
+    @Test
+    void holdsTheSlotOfACancelledHashUntilItFinishes() throws InterruptedException {
+        Disposable cancelled = passwordHasher.matches("secret", "secret").subscribe();
+        started.await();
+        cancelled.dispose();
+        Mono<Boolean> queued = passwordHasher.matches("secret", "other").cache();
+        queued.subscribe();
+
+        StepVerifier.create(passwordHasher.matches("secret", "secret"))
+                .expectError(PasswordHashingRejectedException.class)
+                .verify(Duration.ofSeconds(5));
+
+        release.countDown();
+        assertThat(queued.block()).isFalse();
+        assertThat(passwordHasher.matches("secret", "secret").block()).isTrue();
+    }
+
+    @Test
+    void releasesTheSlotOfAHashCancelledBeforeItStarts() {
+        Mono<Boolean> running = passwordHasher.matches("secret", "secret").cache();
+        running.subscribe();
+        passwordHasher.matches("secret", "other").subscribe().dispose();
+        Mono<Boolean> queued = passwordHasher.matches("secret", "other").cache();
+        queued.subscribe();
+
+        release.countDown();
+        assertThat(running.block()).isTrue();
+        assertThat(queued.block()).isFalse();
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteAuthorizationTableTest {
+
+    private static final int USER = Role.ROLE_USER.bit();
+    private static final int ADMIN = Role.ROLE_ADMIN.bit();
+
+    private final Handlers handlers = new Handlers();
+    private final Map<RequestMappingInfo, HandlerMethod> handlerMethods = new LinkedHashMap<>();
+
+    @Test
+    void resolvesTheRolesOfLiteralRoutes() throws NoSuchMethodException {
+        route("/secured/admin", RequestMethod.GET, "admin");
+        route("/secured/user-or-admin", RequestMethod.GET, "userOrAdmin");
+        route("/secured/public", RequestMethod.GET, "authenticated");
+        RouteAuthorizationTable table = RouteAuthorizationTable.compile(handlerMethods);
+
+        assertThat(requiredMask(table, HttpMethod.GET, "/secured/admin")).isEqualTo(ADMIN);
+        assertThat(requiredMask(table, HttpMethod.GET, "/secured/user-or-admin")).isEqualTo(USER | ADMIN);
+        assertThat(requiredMask(table, HttpMethod.GET, "/secured/public")).isZero();
+        assertThat(requiredMask(table, HttpMethod.GET, "/secured/unknown")).isZero();
+        assertThat(requiredMask(table, HttpMethod.POST, "/secured/admin")).isZero();
+    }
+
+    @Test
+    void authorizesTheRouteTheRequestIsDispatchedTo() throws NoSuchMethodException {
+        route("/secured/admin", RequestMethod.GET, "admin");
+        RouteAuthorizationTable table = RouteAuthorizationTable.compile(handlerMethods);
+
+        assertThat(requiredMask(table, HttpMethod.GET, "/secured/%61dmin")).isEqualTo(ADMIN);
+        assertThat(requiredMask(table, HttpMethod.GET, "/secured/admin;jsessionid=1")).isEqualTo(ADMIN);
+        assertThat(requiredMask(table, HttpMethod.HEAD, "/secured/admin")).isEqualTo(ADMIN);
+    }
+
+    @Test
+    void prefersTheMostSpecificRoute() throws NoSuchMethodException {
+        route("/users/{id}", RequestMethod.GET, "admin");
+        route("/users/me", RequestMethod.GET, "userOrAdmin");
+        route("/users/**", null, "authenticated");
+        RouteAuthorizationTable table = RouteAuthorizationTable.compile(handlerMethods);
+
+        assertThat(requiredMask(table, HttpMethod.GET, "/users/me")).isEqualTo(USER | ADMIN);
+        assertThat(requiredMask(table, HttpMethod.GET, "/users/42")).isEqualTo(ADMIN);
+        assertThat(requiredMask(table, HttpMethod.DELETE, "/users/42")).isZero();
+    }
+
+    @Test
+    void refusesRoutesThatRequireDifferentRolesForTheSameRequest() throws NoSuchMethodException {
+        route("/secured/admin", RequestMethod.GET, "admin");
+        route("/secured/admin", null, "userOrAdmin");
+
+        assertThatThrownBy(() -> RouteAuthorizationTable.compile(handlerMethods)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private void route(String path, RequestMethod method, String handler) throws NoSuchMethodException {
+        RequestMappingInfo.Builder mapping = RequestMappingInfo.paths(path);
+        if (method != null) {
+            mapping.methods(method);
+        }
+        handlerMethods.put(mapping.build(), new HandlerMethod(handlers, handler));
+    }
+
+    private static int requiredMask(RouteAuthorizationTable table, HttpMethod method, String path) {
+        return table.requiredMask(method, PathContainer.parsePath(path));
+    }
+
+    static class Handlers {
+
+        @HasAnyRole(Role.ROLE_ADMIN)
+        public Mono<String> admin() {
+            return Mono.just("admin");
+        }
+
+        @HasAnyRole({Role.ROLE_USER, Role.ROLE_ADMIN})
+        public Mono<String> userOrAdmin() {
+            return Mono.just("user or admin");
+        }
+
+        public Mono<String> authenticated() {
+            return Mono.just("authenticated");
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.example.mediumreactivewebflux5security_db.config.security.SessionRevocationList.BloomFilter;
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionRevocationListTest {
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("revoked-" + i));
+
+        assertThat(IntStream.range(0, 10_000)).allMatch(i -> filter.mightContain("revoked-" + i));
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("live-" + i)).count();
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void syncReplacesTheFilterWithTheRecentRevocations() {
+        RefreshSessionRepository repository = mock(RefreshSessionRepository.class);
+        RefreshSession revoked = new RefreshSession("revoked", "user", "hash", null, Instant.now().plusSeconds(60), Instant.now(), true, 1L);
+        when(repository.findByRevokedTrueAndUpdatedAtAfter(any())).thenReturn(Flux.just(revoked));
+        SessionRevocationList sessionRevocationList = sessionRevocationList(repository);
+        sessionRevocationList.revoke("local");
+
+        sessionRevocationList.sync();
+
+        assertThat(sessionRevocationList.mightBeRevoked("revoked")).isTrue();
+        assertThat(sessionRevocationList.mightBeRevoked("local")).isFalse();
+    }
+
+    @Test
+    void checksEverySessionUntilTheFirstSyncSucceeds() {
+        RefreshSessionRepository repository = mock(RefreshSessionRepository.class);
+        when(repository.findByRevokedTrueAndUpdatedAtAfter(any()))
+                .thenReturn(Flux.error(new IllegalStateException("no database")), Flux.empty());
+        SessionRevocationList sessionRevocationList = sessionRevocationList(repository);
+
+        sessionRevocationList.start();
+
+        assertThat(sessionRevocationList.isRunning()).isTrue();
+        assertThat(sessionRevocationList.mightBeRevoked("live")).isTrue();
+
+        sessionRevocationList.sync();
+
+        assertThat(sessionRevocationList.mightBeRevoked("live")).isFalse();
+    }
+
+    @Test
+    void skipsASyncWhileThePreviousOneIsRunning() {
+        RefreshSessionRepository repository = mock(RefreshSessionRepository.class);
+        Sinks.Many<RefreshSession> revokedSessions = Sinks.many().unicast().onBackpressureBuffer();
+        RefreshSession revoked = new RefreshSession("revoked", "user", "hash", null, Instant.now().plusSeconds(60), Instant.now(), true, 1L);
+        when(repository.findByRevokedTrueAndUpdatedAtAfter(any())).thenReturn(revokedSessions.asFlux(), Flux.empty());
+        SessionRevocationList sessionRevocationList = sessionRevocationList(repository);
+
+        sessionRevocationList.sync();
+        sessionRevocationList.sync();
+        sessionRevocationList.revoke("local");
+        revokedSessions.tryEmitNext(revoked);
+        revokedSessions.tryEmitComplete();
+
+        verify(repository, times(1)).findByRevokedTrueAndUpdatedAtAfter(any());
+        assertThat(sessionRevocationList.mightBeRevoked("revoked")).isTrue();
+        assertThat(sessionRevocationList.mightBeRevoked("local")).isTrue();
+        assertThat(sessionRevocationList.mightBeRevoked("live")).isFalse();
+
+        sessionRevocationList.sync();
+
+        verify(repository, times(2)).findByRevokedTrueAndUpdatedAtAfter(any());
+    }
+
+    private static SessionRevocationList sessionRevocationList(RefreshSessionRepository repository) {
+        SessionRevocationList sessionRevocationList = new SessionRevocationList(repository);
+        ReflectionTestUtils.setField(sessionRevocationList, "accessTokenLifetime", 900L);
+        ReflectionTestUtils.setField(sessionRevocationList, "expectedRevocations", 1000);
+        ReflectionTestUtils.setField(sessionRevocationList, "falsePositiveRate", 0.001);
+        sessionRevocationList.init();
+        return sessionRevocationList;
+    }
+
+}
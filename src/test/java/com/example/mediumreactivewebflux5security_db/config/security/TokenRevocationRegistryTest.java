@@ -0,0 +1,90 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class TokenRevocationRegistryTest {
+
+    private final TokenRevocationRegistry registry = new TokenRevocationRegistry();
+
+    {
+        ReflectionTestUtils.setField(registry, "maxStaleness", 300L);
+    }
+
+    @Test
+    void trustsRecentRoleClaims() {
+        assertThat(registry.trustsRoleClaims(claims("user", secondsAgo(10)))).isTrue();
+    }
+
+    @Test
+    void distrustsRoleClaimsOlderThanTheMaxStaleness() {
+        assertThat(registry.trustsRoleClaims(claims("user", secondsAgo(301)))).isFalse();
+    }
+
+    @Test
+    void distrustsRoleClaimsWithoutIssuedAt() {
+        assertThat(registry.trustsRoleClaims(claims("user", null))).isFalse();
+    }
+
+    @Test
+    void distrustsRoleClaimsIssuedBeforeTheirRevocation() {
+        Claims issuedBefore = claims("user", secondsAgo(10));
+        Claims issuedInTheSameSecond = claims("user", secondsAgo(0));
+        Claims otherUser = claims("other", secondsAgo(10));
+
+        registry.revokeRoleClaims("user");
+
+        assertThat(registry.trustsRoleClaims(issuedBefore)).isFalse();
+        assertThat(registry.trustsRoleClaims(issuedInTheSameSecond)).isFalse();
+        assertThat(registry.trustsRoleClaims(otherUser)).isTrue();
+    }
+
+    @Test
+    void trustsRoleClaimsIssuedAfterTheRevocation() {
+        registry.revokeRoleClaims("user");
+
+        assertThat(registry.trustsRoleClaims(claims("user", new Date(System.currentTimeMillis() + 1000)))).isTrue();
+    }
+
+    @Test
+    void revokesManyUsersWithoutScanningTheEarlierRevocations() {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 200_000; i++) {
+                registry.revokeRoleClaims("user" + i);
+            }
+        });
+
+        assertThat(registry.size()).isEqualTo(200_000);
+        assertThat(registry.trustsRoleClaims(claims("user199999", secondsAgo(10)))).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictsOnlyTheRevocationsOlderThanTheMaxStaleness() {
+        registry.revokeRoleClaims("recent");
+        Map<String, Long> revokedAt = (Map<String, Long>) ReflectionTestUtils.getField(registry, "revokedAt");
+        revokedAt.put("expired", System.currentTimeMillis() / 1000 - 301);
+
+        registry.evictExpired();
+
+        assertThat(revokedAt).containsOnlyKeys("recent");
+    }
+
+    private static Claims claims(String username, Date issuedAt) {
+        return Jwts.claims().setSubject(username).setIssuedAt(issuedAt);
+    }
+
+    private static Date secondsAgo(long seconds) {
+        return new Date(System.currentTimeMillis() - seconds * 1000);
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.example.mediumreactivewebflux5security_db.config.security;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.OperationType;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserChangeStreamListenerTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final CachingReactiveUserDetailsService userDetailsService = mock(CachingReactiveUserDetailsService.class);
+    private final TokenRevocationRegistry tokenRevocationRegistry = mock(TokenRevocationRegistry.class);
+    private final UserChangeStreamListener listener = new UserChangeStreamListener(mongoTemplate, userDetailsService, tokenRevocationRegistry);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(listener, "enabled", true);
+        when(mongoTemplate.getCollectionName(any())).thenReturn("user");
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.stop();
+    }
+
+    @Test
+    void evictsUpdatedUsersAndEveryUserOnDeletion() {
+        stream(Flux.just(event(OperationType.UPDATE, "alice", 1), event(OperationType.DELETE, null, 2)).concatWith(Flux.never()));
+
+        listener.start();
+
+        verify(userDetailsService, timeout(1000)).invalidate("alice");
+        verify(tokenRevocationRegistry).revokeRoleClaims("alice");
+        // once when the stream opens without a position, once for the deletion
+        verify(userDetailsService, timeout(1000).times(2)).invalidateAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void resumesAfterTheLastProcessedEvent() {
+        stream(
+                Flux.just(event(OperationType.REPLACE, "alice", 1))
+                        .concatWith(Flux.error(new MongoSocketReadException("connection reset", new ServerAddress()))),
+                Flux.never()
+        );
+
+        listener.start();
+
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+        verify(mongoTemplate, timeout(5000).times(2)).changeStream(isNull(), eq("user"), options.capture(), eq(Document.class));
+        assertThat(options.getAllValues().get(0).getResumeToken()).isEmpty();
+        assertThat(options.getAllValues().get(1).getResumeToken()).contains(token(1));
+        verify(userDetailsService, times(1)).invalidateAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fallsBackToTheTimeToLiveOnAStandaloneServer() {
+        BsonDocument response = new BsonDocument("ok", new BsonInt32(0))
+                .append("code", new BsonInt32(40573))
+                .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets"));
+        stream(Flux.error(new MongoCommandException(response, new ServerAddress())));
+
+        listener.start();
+
+        verify(mongoTemplate, after(1500).times(1)).changeStream(isNull(), eq("user"), any(ChangeStreamOptions.class), eq(Document.class));
+        verify(userDetailsService, never()).invalidate(any());
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        ReflectionTestUtils.setField(listener, "enabled", false);
+
+        listener.start();
+
+        assertThat(listener.isRunning()).isFalse();
+        verify(mongoTemplate, never()).changeStream(any(), any(), any(), any());
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private void stream(Flux<ChangeStreamEvent<Document>>... subscriptions) {
+        var stubbing = when(mongoTemplate.changeStream(isNull(), eq("user"), any(ChangeStreamOptions.class), eq(Document.class)));
+        for (Flux<ChangeStreamEvent<Document>> subscription : subscriptions) {
+            stubbing = stubbing.thenReturn((Flux) subscription);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChangeStreamEvent<Document> event(OperationType operationType, String username, int position) {
+        ChangeStreamEvent<Document> event = mock(ChangeStreamEvent.class);
+        when(event.getOperationType()).thenReturn(operationType);
+        when(event.getBody()).thenReturn(username == null ? null : new Document("username", username));
+        when(event.getResumeToken()).thenReturn(token(position));
+        return event;
+    }
+
+    private static BsonValue token(int position) {
+        return new BsonDocument("_data", new BsonString("token-" + position));
+    }
+
+}
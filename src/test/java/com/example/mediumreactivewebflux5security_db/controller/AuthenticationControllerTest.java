@@ -0,0 +1,123 @@
+package com.example.mediumreactivewebflux5security_db.controller;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.JwtFixtures;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.security.LoginFailureTracker;
+import com.example.mediumreactivewebflux5security_db.config.security.PasswordHasher;
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.RefreshRequest;
+import com.example.mediumreactivewebflux5security_db.service.RefreshTokenService;
+import com.example.mediumreactivewebflux5security_db.service.RefreshTokenService.Grant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthenticationControllerTest {
+
+    private final Map<String, UserDetails> database = new ConcurrentHashMap<>();
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final AuthenticationController controller = new AuthenticationController(
+            JwtFixtures.jwtUtil(false),
+            mock(PasswordHasher.class),
+            username -> Mono.justOrEmpty(database.get(username)),
+            mock(ReactiveUserDetailsPasswordService.class),
+            refreshTokenService,
+            mock(LoginFailureTracker.class),
+            new SecurityMetrics(new SimpleMeterRegistry())
+    );
+
+    @Test
+    void refreshesTheTokensOfUsableAccounts() {
+        database.put("user", User.withUsername("user").password("hash").roles("USER").build());
+        when(refreshTokenService.rotate(anyString())).thenReturn(Mono.just(new Grant("user", "sid", "sid.next")));
+
+        ResponseEntity<AuthResponse> response = controller.refresh(new RefreshRequest("sid.secret")).block();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getRefreshToken()).isEqualTo("sid.next");
+    }
+
+    @Test
+    void refusesToRefreshTheTokensOfDisabledOrExpiredAccounts() {
+        database.put("disabled", User.withUsername("disabled").password("hash").roles("USER").disabled(true).build());
+        database.put("expired", User.withUsername("expired").password("hash").roles("USER").accountExpired(true).build());
+        when(refreshTokenService.rotate("disabled.secret")).thenReturn(Mono.just(new Grant("disabled", "sid", "sid.next")));
+        when(refreshTokenService.rotate("expired.secret")).thenReturn(Mono.just(new Grant("expired", "sid", "sid.next")));
+
+        assertThat(controller.refresh(new RefreshRequest("disabled.secret")).block().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(controller.refresh(new RefreshRequest("expired.secret")).block().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void refreshesTheTokensOfLockedAccounts() {
+        database.put("locked", User.withUsername("locked").password("hash").roles("USER").accountLocked(true).build());
+        when(refreshTokenService.rotate("locked.secret")).thenReturn(Mono.just(new Grant("locked", "sid", "sid.next")));
+
+        assertThat(controller.refresh(new RefreshRequest("locked.secret")).block().getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void upgradesTheOutdatedPasswordHashOfALogin() {
+        PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(5);
+        PasswordHasher passwordHasher = new PasswordHasher(passwordEncoder);
+        ReflectionTestUtils.setField(passwordHasher, "concurrency", 1);
+        ReflectionTestUtils.setField(passwordHasher, "queueCapacity", 1);
+        passwordHasher.init();
+        ReactiveUserDetailsPasswordService userPasswordService = mock(ReactiveUserDetailsPasswordService.class);
+        when(userPasswordService.updatePassword(any(), anyString())).thenReturn(Mono.empty());
+        LoginFailureTracker loginFailureTracker = mock(LoginFailureTracker.class);
+        when(loginFailureTracker.lockedFor("user")).thenReturn(Duration.ZERO);
+        when(refreshTokenService.create("user")).thenReturn(Mono.just(new Grant("user", "sid", "sid.secret")));
+        UserDetails user = User.withUsername("user").password(new BCryptPasswordEncoder(4).encode("secret")).roles("USER").build();
+        database.put("user", user);
+        AuthenticationController controller = new AuthenticationController(JwtFixtures.jwtUtil(false), passwordHasher,
+                username -> Mono.justOrEmpty(database.get(username)), userPasswordService, refreshTokenService, loginFailureTracker,
+                new SecurityMetrics(new SimpleMeterRegistry()));
+        try {
+            assertThat(controller.login(new AuthRequest("user", "secret")).block().getStatusCode()).isEqualTo(HttpStatus.OK);
+
+            ArgumentCaptor<String> upgraded = ArgumentCaptor.forClass(String.class);
+            verify(userPasswordService, timeout(5000)).updatePassword(eq(user), upgraded.capture());
+            assertThat(passwordEncoder.matches("secret", upgraded.getValue())).isTrue();
+            assertThat(passwordEncoder.upgradeEncoding(upgraded.getValue())).isFalse();
+        } finally {
+            passwordHasher.destroy();
+        }
+    }
+
+    @Test
+    void rejectsALoginWithoutUsernameOrPassword() {
+        assertThat(controller.login(new AuthRequest(null, "secret")).block().getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(controller.login(new AuthRequest("user", null)).block().getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void rejectsAMissingRefreshToken() {
+        assertThat(controller.refresh(new RefreshRequest(null)).block().getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(controller.logout(new RefreshRequest(null)).block().getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import com.example.mediumreactivewebflux5security_db.loadtest.LoadDriver.LoadProfile;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <p>Drives a configurable mix of {@code /login}, {@code /secured/user} and {@code /secured/admin} traffic through the real
+ * server, with MongoDB replaced by an {@link InMemoryReactiveUserRepository} and an {@link InMemoryRefreshSessionRepository},
+ * and reports throughput and latency percentiles per endpoint.</p>
+ * <p>Excluded from the default build, run it with {@code ./mvnw -Pload-test test} and tune it with system properties, for
+ * example {@code -Dloadtest.users=1000 -Dloadtest.requests=200000 -Dloadtest.concurrency=256 -Dloadtest.loginRatio=0.01}.
+ * The request sequence only depends on {@code loadtest.seed}, so two runs with the same properties send the same traffic.
+ * With the {@code virtual-threads} profile, {@code VirtualThreadLoadTest} sends the same traffic to the servlet mode.</p>
+ */
+@Tag("load")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                // the servlet stack is also on the classpath with the virtual-threads profile
+                "spring.main.web-application-type=reactive",
+                "spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration",
+                // every request comes from localhost and users log in repeatedly, the limits would throttle the run itself
+                "login.rateLimit.perAddress.capacity=1000000000",
+                "login.rateLimit.perAddress.refillsPerMinute=1000000000",
+                "login.rateLimit.perUsername.capacity=1000000000",
+                "login.rateLimit.perUsername.refillsPerMinute=1000000000",
+                // the driver has at most loadtest.concurrency requests in flight, let all of its logins wait for a hashing thread
+                // instead of shedding them with 503 as a real server should
+                "password.hashing.queueCapacity=${loadtest.concurrency:64}",
+                "user.cache.changeStream.enabled=false"
+        }
+)
+class AuthenticationLoadTest {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void loginAndSecuredTraffic() {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        List<User> users = LoadDriver.users(profile.users(), passwordEncoder.encode(LoadDriver.PASSWORD));
+        reactiveUserRepository.saveAll(users).blockLast();
+
+        Map<String, LatencyRecorder> recorders = new LoadDriver(port, profile, "reactive").run(users);
+
+        assertThat(recorders.values()).allSatisfy(recorder -> assertThat(recorder.failures()).isZero());
+    }
+
+    @TestConfiguration
+    static class InMemoryMongoConfiguration {
+
+        @Bean
+        InMemoryReactiveUserRepository reactiveUserRepository() {
+            return new InMemoryReactiveUserRepository();
+        }
+
+        @Bean
+        InMemoryRefreshSessionRepository refreshSessionRepository() {
+            return new InMemoryRefreshSessionRepository();
+        }
+
+        /**
+         * The user import writes through the template directly, it is not part of the traffic mix.
+         */
+        @Bean
+        ReactiveMongoTemplate reactiveMongoTemplate() {
+            return Mockito.mock(ReactiveMongoTemplate.class);
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A {@link ReactiveMongoRepository} backed by a {@link ConcurrentHashMap}, standing in for MongoDB in the load harness.
+ * <p>Only the CRUD methods are implemented, query by example and sorting are not used by the application.</p>
+ *
+ * @param <T>  the document type
+ * @param <ID> the id type
+ */
+abstract class InMemoryReactiveMongoRepository<T, ID> implements ReactiveMongoRepository<T, ID> {
+
+    protected final Map<ID, T> documents = new ConcurrentHashMap<>();
+    private final Function<T, ID> idOf;
+
+    protected InMemoryReactiveMongoRepository(Function<T, ID> idOf) {
+        this.idOf = idOf;
+    }
+
+    /**
+     * Called after a document has been stored, to maintain secondary indexes.
+     *
+     * @param document the stored document
+     */
+    protected void onSave(T document) {
+    }
+
+    /**
+     * Called after a document has been removed, to maintain secondary indexes.
+     *
+     * @param document the removed document
+     */
+    protected void onDelete(T document) {
+    }
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return Mono.fromSupplier(() -> {
+            documents.put(idOf.apply(entity), entity);
+            onSave(entity);
+            return entity;
+        });
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Mono<S> insert(S entity) {
+        return Mono.defer(() -> documents.containsKey(idOf.apply(entity))
+                ? Mono.error(new IllegalStateException("Duplicate id " + idOf.apply(entity)))
+                : save(entity));
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::insert);
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Publisher<S> entities) {
+        return Flux.from(entities).concatMap(this::insert);
+    }
+
+    @Override
+    public Mono<T> findById(ID id) {
+        return Mono.fromSupplier(() -> documents.get(id));
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(ID id) {
+        return Mono.fromSupplier(() -> documents.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(documents.values()));
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<ID> ids) {
+        return Flux.fromIterable(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<ID> idStream) {
+        return Flux.from(idStream).concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) documents.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(ID id) {
+        return Mono.fromRunnable(() -> {
+            T removed = documents.remove(id);
+            if (removed != null) {
+                onDelete(removed);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return deleteById(idOf.apply(entity));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends ID> ids) {
+        return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return Flux.fromIterable(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+        return Flux.from(entityStream).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Flux.defer(() -> Flux.fromIterable(documents.keySet())).concatMap(this::deleteById).then();
+    }
+
+    @Override
+    public Flux<T> findAll(Sort sort) {
+        throw new UnsupportedOperationException("Sorting is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> Mono<S> findOne(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example, Sort sort) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> Mono<Long> count(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T> Mono<Boolean> exists(Example<S> example) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+    @Override
+    public <S extends T, R, P extends Publisher<R>> P findBy(Example<S> example, Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        throw new UnsupportedOperationException("Query by example is not supported in memory");
+    }
+
+}
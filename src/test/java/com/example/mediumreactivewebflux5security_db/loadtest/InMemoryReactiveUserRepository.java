@@ -0,0 +1,75 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.model.UserCredentials;
+import com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory {@link ReactiveUserRepository} with a username index, so lookups cost the same whatever the number of users.
+ */
+class InMemoryReactiveUserRepository extends InMemoryReactiveMongoRepository<User, String> implements ReactiveUserRepository {
+
+    private final Map<String, User> byUsername = new ConcurrentHashMap<>();
+
+    InMemoryReactiveUserRepository() {
+        super(User::getUserId);
+    }
+
+    @Override
+    protected void onSave(User user) {
+        byUsername.put(user.getUsername(), user);
+    }
+
+    @Override
+    protected void onDelete(User user) {
+        byUsername.remove(user.getUsername());
+    }
+
+    @Override
+    public Mono<User> findByUsername(String username) {
+        return Mono.fromSupplier(() -> byUsername.get(username));
+    }
+
+    @Override
+    public Mono<UserCredentials> findCredentialsByUsername(String username) {
+        return findByUsername(username)
+                .map(user -> new UserCredentials(user.getUsername(), user.getPassword(), user.getEnabled(), user.getRoles(),
+                        user.getAccountExpiresAt(), user.getCredentialsExpireAt(), user.getLockedUntil()));
+    }
+
+    @Override
+    public Flux<UserCredentials> findCredentialsByUsernameIn(Collection<String> usernames) {
+        return Flux.fromIterable(usernames).flatMap(this::findCredentialsByUsername);
+    }
+
+    @Override
+    public Mono<Long> updateLockedUntilByUsername(String username, Instant lockedUntil) {
+        return findByUsername(username)
+                .doOnNext(user -> user.setLockedUntil(lockedUntil))
+                .map(user -> 1L)
+                .defaultIfEmpty(0L);
+    }
+
+    @Override
+    public Mono<Long> updatePasswordByUsernameAndPassword(String username, String expectedPassword, String password) {
+        return findByUsername(username)
+                .map(user -> {
+                    synchronized (user) {
+                        if (!user.getPassword().equals(expectedPassword)) {
+                            return 0L;
+                        }
+                        user.setPassword(password);
+                        return 1L;
+                    }
+                })
+                .defaultIfEmpty(0L);
+    }
+
+}
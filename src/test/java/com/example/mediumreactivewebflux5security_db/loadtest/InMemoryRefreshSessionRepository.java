@@ -0,0 +1,40 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * An in-memory {@link RefreshSessionRepository}. Revoked sessions and the sessions of a user are found with a scan, there are few of them in a load test.
+ * Versions are not checked, concurrent refreshes of one session do not happen in a load test either.
+ */
+class InMemoryRefreshSessionRepository extends InMemoryReactiveMongoRepository<RefreshSession, String> implements RefreshSessionRepository {
+
+    InMemoryRefreshSessionRepository() {
+        super(RefreshSession::getSessionId);
+    }
+
+    @Override
+    public Flux<RefreshSession> findByRevokedTrueAndUpdatedAtAfter(Instant since) {
+        return Flux.defer(() -> Flux.fromStream(documents.values().stream()
+                .filter(session -> session.isRevoked() && session.getUpdatedAt().isAfter(since))));
+    }
+
+    @Override
+    public Mono<Boolean> existsBySessionIdAndRevokedTrue(String sessionId) {
+        return Mono.fromSupplier(() -> {
+            RefreshSession session = documents.get(sessionId);
+            return session != null && session.isRevoked();
+        });
+    }
+
+    @Override
+    public Flux<RefreshSession> findByUsernameAndRevokedFalse(String username) {
+        return Flux.defer(() -> Flux.fromStream(documents.values().stream()
+                .filter(session -> !session.isRevoked() && session.getUsername().equals(username))));
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records the latency and outcome of every request sent to one endpoint and summarizes them as throughput and percentiles.
+ */
+final class LatencyRecorder {
+
+    private final String endpoint;
+    private long[] latencies = new long[1024];
+    private int count;
+    private int failures;
+
+    LatencyRecorder(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    synchronized void record(long latencyNanos, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!success) {
+            failures++;
+        }
+    }
+
+    synchronized int failures() {
+        return failures;
+    }
+
+    static String header() {
+        return String.format(Locale.ROOT, "%-28s %9s %9s %11s %11s %10s %10s %10s", "endpoint", "requests", "failures", "req/s", "req/s/core", "p50 ms", "p99 ms", "p999 ms");
+    }
+
+    /**
+     * @param elapsed the wall-clock duration of the whole run, throughput is computed against it
+     * @param cores   the cores the run was served with, to compare throughput between machines and thread counts
+     * @return one line of the report
+     */
+    synchronized String summary(Duration elapsed, int cores) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double throughput = count / (elapsed.toNanos() / 1e9);
+        return String.format(Locale.ROOT, "%-28s %9d %9d %11.1f %11.1f %10.3f %10.3f %10.3f",
+                endpoint, count, failures, throughput, throughput / cores,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+}
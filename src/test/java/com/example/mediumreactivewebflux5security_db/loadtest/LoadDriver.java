@@ -0,0 +1,175 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * Sends the seeded mix of {@code /login}, {@code /secured/user} and {@code /secured/admin} requests of a {@link LoadProfile} to
+ * a running server and reports throughput and latency percentiles per endpoint. The server only has to expose those three
+ * endpoints, so every execution mode of the application is measured with the same traffic.
+ */
+@Slf4j
+final class LoadDriver {
+
+    static final String PASSWORD = "load-test-password";
+
+    private final WebClient client;
+    private final LoadProfile profile;
+    private final String mode;
+
+    /**
+     * @param port    the port of the server on localhost
+     * @param profile the shape of the run
+     * @param mode    the name of the execution mode under test, printed with the results
+     */
+    LoadDriver(int port, LoadProfile profile, String mode) {
+        this.client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(
+                        HttpClient.create(ConnectionProvider.create("load-test", profile.concurrency()))
+                                .protocol(HttpProtocol.valueOf(profile.protocol().toUpperCase(Locale.ROOT)))))
+                .build();
+        this.profile = profile;
+        this.mode = mode;
+    }
+
+    /**
+     * Builds the users of a run, every fifth user is also an admin. They share one password hash so seeding does not cost one
+     * BCrypt hash per user.
+     *
+     * @param count        the number of users
+     * @param passwordHash the hash of {@link #PASSWORD}
+     * @return the users, to be stored by the server under test
+     */
+    static List<User> users(int count, String passwordHash) {
+        return IntStream.range(0, count)
+                .mapToObj(index -> new User(
+                        "load-" + index,
+                        "load-user-" + index,
+                        passwordHash,
+                        true,
+                        index % 5 == 0 ? List.of(Role.ROLE_USER, Role.ROLE_ADMIN) : List.of(Role.ROLE_USER)
+                ))
+                .toList();
+    }
+
+    /**
+     * Logs every user in once, then sends the warm-up requests and the measured requests.
+     *
+     * @param users the users stored on the server, with {@link #PASSWORD} as their password
+     * @return the recorders of the measured requests, by path
+     */
+    Map<String, LatencyRecorder> run(List<User> users) {
+        log.info("Running {} against the {} mode", profile, mode);
+        List<String> tokens = Flux.fromIterable(users)
+                .flatMapSequential(user -> login(user.getUsername()), profile.concurrency())
+                .collectList()
+                .block();
+
+        run(users, tokens, profile.warmupRequests(), profile.seed() + 1);
+        return run(users, tokens, profile.requests(), profile.seed());
+    }
+
+    private Map<String, LatencyRecorder> run(List<User> users, List<String> tokens, int requests, long seed) {
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        recorders.put("/login", new LatencyRecorder("POST /login"));
+        recorders.put("/secured/user", new LatencyRecorder("GET /secured/user"));
+        recorders.put("/secured/admin", new LatencyRecorder("GET /secured/admin"));
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] plan = new int[requests];
+        for (int i = 0; i < requests; i++) {
+            plan[i] = random.nextInt(users.size());
+            if (random.nextDouble() < profile.loginRatio()) {
+                plan[i] = -plan[i] - 1;
+            }
+        }
+
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> {
+                    int userIndex = plan[i] < 0 ? -plan[i] - 1 : plan[i];
+                    User user = users.get(userIndex);
+                    if (plan[i] < 0) {
+                        return timed(recorders.get("/login"), login(user.getUsername()).map(token -> 200));
+                    }
+                    String path = user.getRoles().contains(Role.ROLE_ADMIN) ? "/secured/admin" : "/secured/user";
+                    return timed(recorders.get(path), get(path, tokens.get(userIndex)));
+                }, profile.concurrency())
+                .blockLast();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        StringBuilder report = new StringBuilder("\n").append(LatencyRecorder.header());
+        recorders.values().forEach(recorder -> report.append('\n').append(recorder.summary(elapsed, profile.cores())));
+        log.info("{} mode, {} requests in {} ms (seed {}):{}", mode, requests, elapsed.toMillis(), seed, report);
+        return recorders;
+    }
+
+    private static Mono<Integer> timed(LatencyRecorder recorder, Mono<Integer> request) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request
+                    .onErrorReturn(-1)
+                    .doOnNext(status -> recorder.record(System.nanoTime() - start, status >= 200 && status < 300));
+        });
+    }
+
+    private Mono<String> login(String username) {
+        return client.post()
+                .uri("/login")
+                .bodyValue(new AuthRequest(username, PASSWORD))
+                .retrieve()
+                .bodyToMono(AuthResponse.class)
+                .map(AuthResponse::getToken);
+    }
+
+    private Mono<Integer> get(String path, String token) {
+        return client.get()
+                .uri(path)
+                .header(AUTHORIZATION, "Bearer " + token)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()));
+    }
+
+    /**
+     * The shape of a load test run, read from {@code loadtest.*} system properties. {@code protocol} is {@code http11}, or
+     * {@code h2c} against a server with {@code server.http2.enabled}. {@code cores} divides the throughput into the
+     * requests per second per core, it defaults to the processors of this machine, which the server shares with the driver.
+     */
+    record LoadProfile(int users, int requests, int warmupRequests, int concurrency, double loginRatio, long seed,
+                       String protocol, int cores) {
+
+        static LoadProfile fromSystemProperties() {
+            return new LoadProfile(
+                    Integer.getInteger("loadtest.users", 100),
+                    Integer.getInteger("loadtest.requests", 20_000),
+                    Integer.getInteger("loadtest.warmupRequests", 5_000),
+                    Integer.getInteger("loadtest.concurrency", 64),
+                    Double.parseDouble(System.getProperty("loadtest.loginRatio", "0.05")),
+                    Long.getLong("loadtest.seed", 42L),
+                    System.getProperty("loadtest.protocol", "http11"),
+                    Integer.getInteger("loadtest.cores", Runtime.getRuntime().availableProcessors())
+            );
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.example.mediumreactivewebflux5security_db.model;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoleTest {
+
+    @Test
+    void sharesTheAuthoritiesOfEachCombinationOfRoles() {
+        assertThat(Role.authoritiesOf(List.of(Role.ROLE_ADMIN, Role.ROLE_USER)))
+                .isSameAs(Role.authoritiesOf(Role.ROLE_USER.bit() | Role.ROLE_ADMIN.bit()))
+                .containsExactly(Role.ROLE_USER.authority(), Role.ROLE_ADMIN.authority());
+        assertThat(Role.authoritiesOf(List.of())).isEmpty();
+        assertThatThrownBy(() -> Role.authoritiesOf(Role.ROLE_USER.bit()).clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void ignoresUnknownBits() {
+        assertThat(Role.authoritiesOf(Role.ROLE_ADMIN.bit() | 1 << 30)).containsExactly(Role.ROLE_ADMIN.authority());
+    }
+
+    @Test
+    void encodesSharedAndEqualAuthorities() {
+        assertThat(Role.maskOf(Role.authoritiesOf(List.of(Role.ROLE_ADMIN)))).isEqualTo(Role.ROLE_ADMIN.bit());
+        assertThat(Role.maskOf(List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("SCOPE_read"))))
+                .isEqualTo(Role.ROLE_USER.bit());
+    }
+
+    @Test
+    void decodesEveryMaskItEncodes() {
+        for (int mask = 0; mask < 1 << Role.values().length; mask++) {
+            assertThat(Role.maskOf(Role.authoritiesOf(Role.fromMask(mask)))).isEqualTo(mask);
+        }
+        assertThat(Role.fromMask(Role.maskOf(List.of(Role.ROLE_ADMIN.authority())))).containsExactly(Role.ROLE_ADMIN);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.example.mediumreactivewebflux5security_db.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCredentialsTest {
+
+    private static final Instant PAST = Instant.now().minus(Duration.ofHours(1));
+    private static final Instant FUTURE = Instant.now().plus(Duration.ofHours(1));
+
+    @Test
+    void canLogInWithoutExpiryOrLockout() {
+        UserCredentials credentials = credentials(null, null, null);
+
+        assertThat(credentials.isEnabled()).isTrue();
+        assertThat(credentials.isAccountNonExpired()).isTrue();
+        assertThat(credentials.isCredentialsNonExpired()).isTrue();
+        assertThat(credentials.isAccountNonLocked()).isTrue();
+    }
+
+    @Test
+    void isLockedUntilTheLockoutEnds() {
+        assertThat(credentials(null, null, FUTURE).isAccountNonLocked()).isFalse();
+        assertThat(credentials(null, null, PAST).isAccountNonLocked()).isTrue();
+    }
+
+    @Test
+    void expiresOnceTheExpiryIsReached() {
+        assertThat(credentials(PAST, FUTURE, null).isAccountNonExpired()).isFalse();
+        assertThat(credentials(PAST, FUTURE, null).isCredentialsNonExpired()).isTrue();
+        assertThat(credentials(FUTURE, PAST, null).isAccountNonExpired()).isTrue();
+        assertThat(credentials(FUTURE, PAST, null).isCredentialsNonExpired()).isFalse();
+    }
+
+    @Test
+    void matchesTheChecksOfTheUser() {
+        User user = new User("1", "user", "hash", true, List.of(Role.ROLE_USER), PAST, FUTURE, FUTURE);
+        UserCredentials credentials = credentials(PAST, FUTURE, FUTURE);
+
+        assertThat(credentials.isAccountNonExpired()).isEqualTo(user.isAccountNonExpired());
+        assertThat(credentials.isCredentialsNonExpired()).isEqualTo(user.isCredentialsNonExpired());
+        assertThat(credentials.isAccountNonLocked()).isEqualTo(user.isAccountNonLocked());
+        assertThat(credentials.getAuthorities()).isSameAs(user.getAuthorities());
+    }
+
+    @Test
+    void hasNoAuthoritiesWithoutRoles() {
+        UserCredentials credentials = new UserCredentials("user", "hash", true, null, null, null, null);
+
+        assertThat(credentials.roles()).isEmpty();
+        assertThat(credentials.getAuthorities()).isEmpty();
+        assertThat(new User("1", "user", "hash", true, null).getAuthorities()).isEmpty();
+    }
+
+    private static UserCredentials credentials(Instant accountExpiresAt, Instant credentialsExpireAt, Instant lockedUntil) {
+        return new UserCredentials("user", "hash", true, List.of(Role.ROLE_USER), accountExpiresAt, credentialsExpireAt, lockedUntil);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.example.mediumreactivewebflux5security_db.service;
+
+import com.example.mediumreactivewebflux5security_db.config.security.SessionRevocationList;
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository;
+import com.example.mediumreactivewebflux5security_db.service.RefreshTokenService.Grant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private final Map<String, RefreshSession> sessions = new ConcurrentHashMap<>();
+    private final SessionRevocationList sessionRevocationList = mock(SessionRevocationList.class);
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    void setUp() {
+        RefreshSessionRepository repository = mock(RefreshSessionRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            RefreshSession session = invocation.getArgument(0);
+            sessions.put(session.getSessionId(), session);
+            return Mono.just(session);
+        });
+        when(repository.findById(anyString())).thenAnswer(invocation -> Mono.justOrEmpty(sessions.get(invocation.<String>getArgument(0))));
+        when(repository.findByUsernameAndRevokedFalse(anyString())).thenAnswer(invocation -> Flux.fromStream(sessions.values().stream()
+                .filter(session -> !session.isRevoked() && session.getUsername().equals(invocation.getArgument(0)))));
+        refreshTokenService = new RefreshTokenService(repository, sessionRevocationList);
+        ReflectionTestUtils.setField(refreshTokenService, "expirationTime", 3600L);
+    }
+
+    @Test
+    void rotatesTheTokenWithinTheSameSession() {
+        Grant created = refreshTokenService.create("user").block();
+
+        Grant rotated = refreshTokenService.rotate(created.refreshToken()).block();
+
+        assertThat(rotated.username()).isEqualTo("user");
+        assertThat(rotated.sessionId()).isEqualTo(created.sessionId());
+        assertThat(rotated.refreshToken()).isNotEqualTo(created.refreshToken());
+        assertThat(sessions.get(created.sessionId()).getTokenHash()).doesNotContain(rotated.refreshToken());
+    }
+
+    @Test
+    void revokesTheSessionWhenATokenIsReused() {
+        Grant created = refreshTokenService.create("user").block();
+        Grant rotated = refreshTokenService.rotate(created.refreshToken()).block();
+
+        StepVerifier.create(refreshTokenService.rotate(created.refreshToken())).verifyComplete();
+
+        assertThat(sessions.get(created.sessionId()).isRevoked()).isTrue();
+        verify(sessionRevocationList).revoke(created.sessionId());
+        StepVerifier.create(refreshTokenService.rotate(rotated.refreshToken())).verifyComplete();
+    }
+
+    @Test
+    void revokesAllTheSessionsOfAUser() {
+        Grant first = refreshTokenService.create("user").block();
+        Grant second = refreshTokenService.create("user").block();
+        Grant other = refreshTokenService.create("other").block();
+
+        refreshTokenService.revokeAll("user").block();
+
+        StepVerifier.create(refreshTokenService.rotate(first.refreshToken())).verifyComplete();
+        StepVerifier.create(refreshTokenService.rotate(second.refreshToken())).verifyComplete();
+        assertThat(refreshTokenService.rotate(other.refreshToken()).block()).isNotNull();
+        verify(sessionRevocationList).revoke(first.sessionId());
+        verify(sessionRevocationList).revoke(second.sessionId());
+    }
+
+    @Test
+    void rejectsForgedTokensWithoutRevokingTheSession() {
+        Grant created = refreshTokenService.create("user").block();
+        refreshTokenService.rotate(created.refreshToken()).block();
+
+        StepVerifier.create(refreshTokenService.rotate(created.sessionId() + ".x")).verifyComplete();
+        refreshTokenService.revoke(created.sessionId() + ".x").block();
+
+        assertThat(sessions.get(created.sessionId()).isRevoked()).isFalse();
+        verify(sessionRevocationList, never()).revoke(anyString());
+    }
+
+    @Test
+    void logoutRevokesTheSession() {
+        Grant created = refreshTokenService.create("user").block();
+
+        refreshTokenService.revoke(created.refreshToken()).block();
+
+        assertThat(sessions.get(created.sessionId()).isRevoked()).isTrue();
+        verify(sessionRevocationList).revoke(created.sessionId());
+        StepVerifier.create(refreshTokenService.rotate(created.refreshToken())).verifyComplete();
+    }
+
+    @Test
+    void ignoresTokensOfUnknownSessions() {
+        StepVerifier.create(refreshTokenService.rotate("unknown.secret")).verifyComplete();
+        StepVerifier.create(refreshTokenService.rotate("no-separator")).verifyComplete();
+        StepVerifier.create(refreshTokenService.revoke("unknown.secret")).verifyComplete();
+        StepVerifier.create(refreshTokenService.rotate(null)).verifyComplete();
+        StepVerifier.create(refreshTokenService.revoke(null)).verifyComplete();
+    }
+
+}
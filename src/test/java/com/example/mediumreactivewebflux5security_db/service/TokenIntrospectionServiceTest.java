@@ -0,0 +1,144 @@
+package com.example.mediumreactivewebflux5security_db.service;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JwtFixtures;
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService;
+import com.example.mediumreactivewebflux5security_db.config.security.SessionRevocationList;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.dto.TokenIntrospection;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenIntrospectionServiceTest {
+
+    private final UserDetails user = User.withUsername("user").password("hash").authorities(Role.ROLE_USER.authority()).build();
+    private final UserDetails admin = User.withUsername("admin").password("hash")
+            .authorities(Role.ROLE_USER.authority(), Role.ROLE_ADMIN.authority()).build();
+    private final UserDetails ghost = User.withUsername("ghost").password("hash").authorities(Role.ROLE_USER.authority()).build();
+    private final UserDetails locked = User.withUsername("locked").password("hash").authorities(Role.ROLE_USER.authority())
+            .accountLocked(true).build();
+    private final UserDetails disabled = User.withUsername("disabled").password("hash").authorities(Role.ROLE_USER.authority())
+            .disabled(true).build();
+    private final Map<String, UserDetails> database = Map.of("user", user, "admin", admin, "locked", locked, "disabled", disabled);
+    private final List<Set<String>> bulkLoads = new ArrayList<>();
+    private final SessionRevocationList sessionRevocationList = mock(SessionRevocationList.class);
+
+    @Test
+    void resolvesTheDistinctUsersOfABatchWithOneLoad() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        TokenIntrospectionService service = service(jwtUtil);
+        String userToken = jwtUtil.generateToken(user);
+
+        List<TokenIntrospection> results = service.introspect(Arrays.asList(
+                userToken, jwtUtil.generateToken(admin), "not-a-jwt", userToken, jwtUtil.generateToken(ghost), null
+        )).collectList().block();
+
+        assertThat(results).extracting(TokenIntrospection::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(results).extracting(TokenIntrospection::isActive).containsExactly(true, true, false, true, false, false);
+        assertThat(results.get(0).getUsername()).isEqualTo("user");
+        assertThat(results.get(0).getRoles()).containsExactly(Role.ROLE_USER);
+        assertThat(results.get(0).getExpiresAt()).isNotNull();
+        assertThat(results.get(1).getRoles()).containsExactly(Role.ROLE_USER, Role.ROLE_ADMIN);
+        assertThat(results.get(2).getRejection()).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(results.get(4).getRejection()).isEqualTo(TokenRejection.UNKNOWN_USER);
+        assertThat(results.get(5).getRejection()).isEqualTo(TokenRejection.MALFORMED);
+        assertThat(bulkLoads).containsExactly(Set.of("user", "admin", "ghost"));
+    }
+
+    @Test
+    void onlyLoadsTheUsersMissingFromTheCache() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        TokenIntrospectionService service = service(jwtUtil);
+
+        service.introspect(List.of(jwtUtil.generateToken(user))).blockLast();
+        service.introspect(List.of(jwtUtil.generateToken(user), jwtUtil.generateToken(admin))).blockLast();
+
+        assertThat(bulkLoads).containsExactly(Set.of("user"), Set.of("admin"));
+    }
+
+    @Test
+    void trustsEmbeddedRolesWithoutALookup() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(true);
+        TokenIntrospectionService service = service(jwtUtil);
+
+        TokenIntrospection result = service.introspect(List.of(jwtUtil.generateToken(admin))).blockLast();
+
+        assertThat(result.isActive()).isTrue();
+        assertThat(result.getRoles()).containsExactly(Role.ROLE_USER, Role.ROLE_ADMIN);
+        assertThat(bulkLoads).isEmpty();
+    }
+
+    @Test
+    void reportsTheTokensOfDisabledAccountsAsInactive() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        TokenIntrospectionService service = service(jwtUtil);
+
+        TokenIntrospection result = service.introspect(List.of(jwtUtil.generateToken(disabled))).blockLast();
+
+        assertThat(result.isActive()).isFalse();
+        assertThat(result.getRejection()).isEqualTo(TokenRejection.INACTIVE_ACCOUNT);
+        assertThat(result.getUsername()).isNull();
+    }
+
+    @Test
+    void keepsTheTokensOfLockedAccountsActive() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+
+        TokenIntrospection result = service(jwtUtil).introspect(List.of(jwtUtil.generateToken(locked))).blockLast();
+
+        assertThat(result.isActive()).isTrue();
+        assertThat(result.getUsername()).isEqualTo("locked");
+    }
+
+    @Test
+    void rejectsTokensOfRevokedSessions() {
+        JWTUtil jwtUtil = JwtFixtures.jwtUtil(false);
+        TokenIntrospectionService service = service(jwtUtil);
+        when(sessionRevocationList.mightBeRevoked(anyString())).thenAnswer(invocation -> invocation.getArgument(0).equals("revoked"));
+        when(sessionRevocationList.isRevoked("revoked")).thenReturn(Mono.just(true));
+
+        List<TokenIntrospection> results = service.introspect(List.of(
+                jwtUtil.generateToken(user, "revoked"), jwtUtil.generateToken(user, "live")
+        )).collectList().block();
+
+        assertThat(results.get(0).getRejection()).isEqualTo(TokenRejection.REVOKED_SESSION);
+        assertThat(results.get(1).isActive()).isTrue();
+    }
+
+    private TokenIntrospectionService service(JWTUtil jwtUtil) {
+        CachingReactiveUserDetailsService userDetailsService = new CachingReactiveUserDetailsService(
+                username -> Mono.justOrEmpty(database.get(username)),
+                usernames -> {
+                    bulkLoads.add(Set.copyOf(usernames));
+                    return Flux.fromIterable(usernames).mapNotNull(database::get);
+                },
+                Duration.ofMinutes(5),
+                100
+        );
+        TokenRevocationRegistry tokenRevocationRegistry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(tokenRevocationRegistry, "maxStaleness", 300L);
+        return new TokenIntrospectionService(jwtUtil, userDetailsService, tokenRevocationRegistry, sessionRevocationList,
+                new SecurityMetrics(new SimpleMeterRegistry()));
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.example.mediumreactivewebflux5security_db.service;
+
+import com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportResult;
+import com.example.mediumreactivewebflux5security_db.dto.UserImportResult.Status;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.jsonwebtoken.Jwts;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+
+    private final Map<String, Document> users = new ConcurrentHashMap<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+    private final CachingReactiveUserDetailsService userDetailsService = mock(CachingReactiveUserDetailsService.class);
+    private final TokenRevocationRegistry tokenRevocationRegistry = mock(TokenRevocationRegistry.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private ReactiveMongoTemplate mongoTemplate;
+    private UserImportService userImportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(refreshTokenService.revokeAll(anyString())).thenReturn(Mono.empty());
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(collection.bulkWrite(anyList(), any())).thenAnswer(invocation -> {
+            List<WriteModel<Document>> writes = invocation.getArgument(0);
+            batchSizes.add(writes.size());
+            List<BulkWriteUpsert> upserts = new ArrayList<>();
+            for (int i = 0; i < writes.size(); i++) {
+                Document user = ((ReplaceOneModel<Document>) writes.get(i)).getReplacement();
+                if (users.put(user.getString("username"), user) == null) {
+                    upserts.add(new BulkWriteUpsert(i, new BsonObjectId()));
+                }
+            }
+            return Mono.just(BulkWriteResult.acknowledged(0, writes.size() - upserts.size(), 0, writes.size() - upserts.size(), upserts, List.of()));
+        });
+
+        // the same conversions as the auto-configured converter, so the Instant fields are stored as dates
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        mongoTemplate = mock(ReactiveMongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(mongoTemplate.getCollectionName(any())).thenReturn("user");
+        when(mongoTemplate.getCollection("user")).thenReturn(Mono.just(collection));
+
+        userImportService = userImportService(tokenRevocationRegistry, 2);
+    }
+
+    private UserImportService userImportService(TokenRevocationRegistry tokenRevocationRegistry, int batchSize) {
+        UserImportService userImportService = new UserImportService(mongoTemplate, passwordEncoder, new ObjectMapper(),
+                userDetailsService, tokenRevocationRegistry, refreshTokenService);
+        ReflectionTestUtils.setField(userImportService, "batchSize", batchSize);
+        ReflectionTestUtils.setField(userImportService, "hashingConcurrency", 2);
+        userImportService.init();
+        return userImportService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        userImportService.destroy();
+    }
+
+    @Test
+    void writesUsersInBatchesAndReportsEveryLineInOrder() {
+        List<UserImportResult> results = userImportService.importUsers(Flux.just(
+                "{\"username\":\"alice\",\"password\":\"a\",\"roles\":[\"ROLE_USER\",\"ROLE_ADMIN\"]}",
+                "",
+                "{\"username\":\"bob\",\"password\":\"b\"}",
+                "{\"username\":\"carol\"}",
+                "not json",
+                "{\"username\":\"dave\",\"password\":\"d\",\"enabled\":false}"
+        )).collectList().block();
+
+        assertThat(results).extracting(UserImportResult::getLine, UserImportResult::getUsername, UserImportResult::getStatus)
+                .containsExactly(
+                        tuple(1L, "alice", Status.CREATED),
+                        tuple(3L, "bob", Status.CREATED),
+                        tuple(4L, "carol", Status.REJECTED),
+                        tuple(5L, null, Status.REJECTED),
+                        tuple(6L, "dave", Status.CREATED)
+                );
+        assertThat(batchSizes).containsExactly(2, 1);
+        assertThat(users.get("alice").getList("roles", String.class)).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(users.get("bob").getList("roles", String.class)).containsExactly("ROLE_USER");
+        assertThat(users.get("bob").getBoolean("enabled")).isTrue();
+        assertThat(users.get("dave").getBoolean("enabled")).isFalse();
+        assertThat(users.get("alice")).doesNotContainKey("_id");
+        assertThat(passwordEncoder.matches("a", users.get("alice").getString("password"))).isTrue();
+        verify(userDetailsService, never()).invalidate(any());
+        verify(refreshTokenService, never()).revokeAll(any());
+    }
+
+    @Test
+    void replacesExistingUsersAndEndsTheirSessions() {
+        userImportService.importUsers(Flux.just("{\"username\":\"alice\",\"password\":\"a\"}")).blockLast();
+
+        UserImportResult result = userImportService.importUsers(Flux.just("{\"username\":\"alice\",\"password\":\"new\",\"roles\":[\"ROLE_ADMIN\"]}"))
+                .blockLast();
+
+        assertThat(result.getStatus()).isEqualTo(Status.UPDATED);
+        assertThat(passwordEncoder.matches("new", users.get("alice").getString("password"))).isTrue();
+        verify(userDetailsService).invalidate("alice");
+        verify(tokenRevocationRegistry).revokeRoleClaims("alice");
+        verify(refreshTokenService).revokeAll("alice");
+    }
+
+    @Test
+    void revokesTheRoleClaimsOfALargeBatchOfUpdates() {
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            users.put("user" + i, new Document("username", "user" + i));
+        }
+        TokenRevocationRegistry registry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(registry, "maxStaleness", 300L);
+        UserImportService largeBatchImportService = userImportService(registry, 100);
+        try {
+            List<UserImportResult> results = largeBatchImportService.importUsers(Flux.range(0, count)
+                    .map(i -> "{\"username\":\"user" + i + "\",\"password\":\"p\"}")).collectList().block();
+
+            assertThat(results).hasSize(count).allSatisfy(result -> assertThat(result.getStatus()).isEqualTo(Status.UPDATED));
+            Date issuedAt = new Date(System.currentTimeMillis() - 10_000);
+            assertThat(IntStream.range(0, count).mapToObj(i -> Jwts.claims().setSubject("user" + i).setIssuedAt(issuedAt)))
+                    .noneMatch(registry::trustsRoleClaims);
+        } finally {
+            largeBatchImportService.destroy();
+        }
+    }
+
+    @Test
+    void neverEchoesTheLineOfAMalformedRecord() {
+        UserImportResult result = userImportService.importUsers(Flux.just("{\"username\":\"alice\",\"password\":\"secret\"")).blockLast();
+
+        assertThat(result.getStatus()).isEqualTo(Status.REJECTED);
+        assertThat(result.getError()).doesNotContain("secret");
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.InvalidTokenException;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.TokenRejection;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics.TokenOutcome;
+import com.example.mediumreactivewebflux5security_db.config.security.AccountStatus;
+import com.example.mediumreactivewebflux5security_db.config.security.AuthenticationAuditor;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.OptionalInt;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * <p>The blocking counterpart of the reactive {@code SecurityContextRepository} and {@code AuthenticationManager}: authenticates
+ * the bearer token of a request with the same {@link JWTUtil}, taking the roles from the token while the
+ * {@link TokenRevocationRegistry} trusts them and from the {@link UserDetailsService} otherwise.</p>
+ * <p>A missing or rejected token leaves the request anonymous, the security chain then answers 401 where authentication is
+ * required. Tokens issued by this mode carry no session, but those of the reactive mode do: their session is looked up with
+ * the {@link BlockingRefreshSessionRepository} on every request, this mode has no in-memory revocation filter, and a token of
+ * a logged out or revoked session is rejected. A looked up user that is disabled or expired is rejected too.</p>
+ */
+@RequiredArgsConstructor
+public class BearerTokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private final JWTUtil jwtUtil;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final SecurityMetrics securityMetrics;
+    private final AuthenticationAuditor authenticationAuditor;
+    private final BlockingRefreshSessionRepository refreshSessionRepository;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(AUTHORIZATION);
+        if (header != null && header.startsWith("Bearer ")) {
+            Authentication authentication = authenticate(header.substring(7));
+            if (authentication != null) {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authentication);
+                SecurityContextHolder.setContext(context);
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * @param token a bearer token
+     * @return the authenticated token, or {@code null} if the token was rejected
+     */
+    private Authentication authenticate(String token) {
+        Claims claims = verify(token);
+        if (claims == null) {
+            return null;
+        }
+        String username = claims.getSubject();
+        String sessionId = jwtUtil.extractSessionId(claims);
+        if (sessionId != null && refreshSessionRepository.existsBySessionIdAndRevokedTrue(sessionId)) {
+            return reject(TokenRejection.REVOKED_SESSION, username, token);
+        }
+        OptionalInt embeddedRoles = jwtUtil.extractRoleMask(claims);
+        if (embeddedRoles.isPresent() && tokenRevocationRegistry.trustsRoleClaims(claims)) {
+            securityMetrics.recordRolesSource(true);
+            authenticationAuditor.success(username, token);
+            return new UsernamePasswordAuthenticationToken(username, token, Role.authoritiesOf(embeddedRoles.getAsInt()));
+        }
+        securityMetrics.recordRolesSource(false);
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException exception) {
+            return reject(TokenRejection.UNKNOWN_USER, username, token);
+        }
+        if (!AccountStatus.canKeepSession(userDetails)) {
+            return reject(TokenRejection.INACTIVE_ACCOUNT, username, token);
+        }
+        authenticationAuditor.success(username, token);
+        return new UsernamePasswordAuthenticationToken(username, token, userDetails.getAuthorities());
+    }
+
+    private Authentication reject(TokenRejection rejection, String username, String token) {
+        securityMetrics.recordTokenRejection(rejection);
+        authenticationAuditor.failure(rejection, username, token);
+        return null;
+    }
+
+    /**
+     * Verifies the token and records how long it took and why it failed, if it did.
+     */
+    private Claims verify(String token) {
+        long start = System.nanoTime();
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            securityMetrics.recordTokenVerification(TokenOutcome.VALID, System.nanoTime() - start);
+            return claims;
+        } catch (InvalidTokenException exception) {
+            securityMetrics.recordTokenVerification(TokenOutcome.of(exception.getRejection()), System.nanoTime() - start);
+            securityMetrics.recordTokenRejection(exception.getRejection());
+            authenticationAuditor.failure(exception.getRejection(), null, token);
+            return null;
+        }
+    }
+
+}
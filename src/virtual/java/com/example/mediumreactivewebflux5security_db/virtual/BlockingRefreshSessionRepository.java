@@ -0,0 +1,21 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.model.RefreshSession;
+import org.springframework.data.repository.Repository;
+
+/**
+ * The lookup of the virtual thread mode on the {@code refreshSession} collection, through the blocking driver. Sessions are
+ * only created and revoked by the reactive mode, this mode checks that the tokens it accepts do not belong to a revoked one.
+ */
+public interface BlockingRefreshSessionRepository extends Repository<RefreshSession, String> {
+
+    /**
+     * The blocking counterpart of
+     * {@link com.example.mediumreactivewebflux5security_db.repository.RefreshSessionRepository#existsBySessionIdAndRevokedTrue(String)}.
+     *
+     * @param sessionId the {@code sid} claim of a token
+     * @return whether the session was logged out or revoked
+     */
+    boolean existsBySessionIdAndRevokedTrue(String sessionId);
+
+}
@@ -0,0 +1,49 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+
+/**
+ * <p>The blocking counterpart of
+ * {@link com.example.mediumreactivewebflux5security_db.config.security.CachingReactiveUserDetailsService}: the credentials
+ * read by the {@link BlockingUserRepository} are cached with the same time to live and size, so both modes query the
+ * database equally often.</p>
+ * <p>Concurrent misses for the same username wait for a single load. Unknown users are not cached.</p>
+ */
+public class BlockingUserDetailsService implements UserDetailsService, MeterBinder {
+
+    private final BlockingUserRepository userRepository;
+    private final Cache<String, UserDetails> cache;
+
+    public BlockingUserDetailsService(BlockingUserRepository userRepository, Duration timeToLive, long maximumSize) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(timeToLive)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        UserDetails userDetails = cache.get(username, key -> userRepository.findCredentialsByUsername(key).orElse(null));
+        if (userDetails == null) {
+            throw new UsernameNotFoundException(username);
+        }
+        return userDetails;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+    }
+
+}
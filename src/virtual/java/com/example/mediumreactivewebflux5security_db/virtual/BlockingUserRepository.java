@@ -0,0 +1,26 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.model.UserCredentials;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.repository.Repository;
+
+import java.util.Optional;
+
+/**
+ * The lookups of the virtual thread mode on the {@code user} collection, through the blocking driver.
+ */
+public interface BlockingUserRepository extends Repository<User, String> {
+
+    /**
+     * The blocking counterpart of
+     * {@link com.example.mediumreactivewebflux5security_db.repository.ReactiveUserRepository#findCredentialsByUsername(String)}.
+     *
+     * @param username the username
+     * @return the credentials of the user, or an empty {@link Optional} if the user does not exist
+     */
+    @Query(value = "{ 'username': ?0 }", fields = "{ '_id': 0, 'username': 1, 'password': 1, 'enabled': 1, 'roles': 1, "
+            + "'accountExpiresAt': 1, 'credentialsExpireAt': 1, 'lockedUntil': 1 }")
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+}
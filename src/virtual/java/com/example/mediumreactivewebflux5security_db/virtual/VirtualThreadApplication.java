@@ -0,0 +1,48 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.ClaimsCache;
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.jwt.SigningKeyring;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.mongo.ConnectionPoolGuard;
+import com.example.mediumreactivewebflux5security_db.config.mongo.MongoClientConfiguration;
+import com.example.mediumreactivewebflux5security_db.config.security.AuthenticationAuditor;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * <p>The virtual thread execution mode: the same {@code /login} and {@code /secured/**} endpoints as the reactive application,
+ * served by Tomcat on Java 21 virtual threads with the blocking MongoDB driver. Plain stack traces and blocking calls make
+ * it the easier of the two to profile, and blocking integrations can be called directly.</p>
+ * <p>It is only compiled by the {@code virtual-threads} Maven profile, which also makes it the main class of the jar. The token
+ * signing, verification, claims cache, metrics and MongoDB pool settings are shared with the reactive mode, the rest of its beans are not, so the
+ * component scan is limited to this package. Every bean of this package is conditional on a servlet application, so the
+ * component scan of the reactive application skips them.</p>
+ * <p>Refresh tokens, the rate limits, the lockout and the admin endpoints are only served by the reactive mode.</p>
+ */
+@SpringBootApplication(exclude = {
+        MongoReactiveAutoConfiguration.class,
+        MongoReactiveDataAutoConfiguration.class,
+        MongoReactiveRepositoriesAutoConfiguration.class
+})
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableScheduling
+@Import({ClaimsCache.class, SigningKeyring.class, JWTUtil.class, TokenRevocationRegistry.class, AuthenticationAuditor.class, SecurityMetrics.class,
+        MongoClientConfiguration.class, ConnectionPoolGuard.class})
+public class VirtualThreadApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(VirtualThreadApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(args);
+    }
+
+}
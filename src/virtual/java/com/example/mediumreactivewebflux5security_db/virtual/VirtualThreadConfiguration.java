@@ -0,0 +1,62 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.config.security.BCryptCostCalibrator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * The thread model, password encoder and user lookup of the virtual thread mode.
+ */
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Configuration
+public class VirtualThreadConfiguration {
+
+    /**
+     * Runs every request on its own virtual thread instead of the bounded Tomcat worker pool. Spring Boot 3.0 has no
+     * {@code spring.threads.virtual.enabled}, so the executor of the connector is replaced directly.
+     *
+     * @return a customizer of the Tomcat protocol handler
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Returns the same PasswordEncoder as the reactive mode, so both modes accept and produce the same hashes.
+     *
+     * @param strength     the BCrypt cost, or the minimum cost when calibrating
+     * @param targetMillis the verification time to calibrate the cost for, {@code 0} disables the calibration
+     * @return a PasswordEncoder bean
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(
+            @Value("${password.hashing.strength}") int strength,
+            @Value("${password.hashing.targetMillis}") long targetMillis) {
+        return BCryptCostCalibrator.passwordEncoder(strength, targetMillis);
+    }
+
+    /**
+     * Returns a UserDetailsService that reads the credentials through the blocking driver and caches them.
+     *
+     * @param userRepository the blocking user repository
+     * @param timeToLive     seconds after which a cached user is loaded again from the database
+     * @param maximumSize    maximum number of cached users
+     * @return a UserDetailsService bean
+     */
+    @Bean
+    public BlockingUserDetailsService userDetailsService(
+            BlockingUserRepository userRepository,
+            @Value("${user.cache.timeToLive}") long timeToLive,
+            @Value("${user.cache.maximumSize}") long maximumSize) {
+        return new BlockingUserDetailsService(userRepository, Duration.ofSeconds(timeToLive), maximumSize);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.security.AccountStatus;
+import com.example.mediumreactivewebflux5security_db.controller.SecuredController;
+import com.example.mediumreactivewebflux5security_db.dto.AuthRequest;
+import com.example.mediumreactivewebflux5security_db.dto.AuthResponse;
+import com.example.mediumreactivewebflux5security_db.dto.Message;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+
+/**
+ * The {@code /login} and {@code /secured/**} endpoints of the reactive {@code AuthenticationController} and
+ * {@code SecuredController}, written as plain blocking calls. Each request runs on its own virtual thread, so the password
+ * hash and the database lookup block only that thread.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class VirtualThreadController {
+
+    private final JWTUtil jwtUtil;
+    private final PasswordEncoder passwordEncoder;
+    private final BlockingUserDetailsService userDetailsService;
+
+    /**
+     * Returns a JWT token for the user. Disabled, expired or locked accounts are rejected before the password is hashed.
+     * No refresh token is issued, refreshing is only served by the reactive mode.
+     *
+     * @param authRequest the username and password
+     * @return the token, 401 if the credentials are not valid, or 400 if the username or password is missing
+     */
+    @PostMapping("/login")
+    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest authRequest) {
+        if (authRequest.getUsername() == null || authRequest.getPassword() == null) {
+            return ResponseEntity.status(BAD_REQUEST).build();
+        }
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(authRequest.getUsername());
+        } catch (UsernameNotFoundException exception) {
+            return ResponseEntity.status(UNAUTHORIZED).build();
+        }
+        if (!AccountStatus.canLogIn(userDetails) || !passwordEncoder.matches(authRequest.getPassword(), userDetails.getPassword())) {
+            return ResponseEntity.status(UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok(new AuthResponse(jwtUtil.generateToken(userDetails), null));
+    }
+
+    @GetMapping("/secured/user")
+    public ResponseEntity<Message> user() {
+        return ResponseEntity.ok(SecuredController.USER);
+    }
+
+    @GetMapping("/secured/admin")
+    public ResponseEntity<Message> admin() {
+        return ResponseEntity.ok(SecuredController.ADMIN);
+    }
+
+    @GetMapping("/secured/resource/user-or-admin")
+    public ResponseEntity<Message> userOrAdmin() {
+        return ResponseEntity.ok(SecuredController.USER_OR_ADMIN);
+    }
+
+}
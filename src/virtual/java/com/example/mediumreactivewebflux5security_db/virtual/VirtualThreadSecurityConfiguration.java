@@ -0,0 +1,101 @@
+package com.example.mediumreactivewebflux5security_db.virtual;
+
+import com.example.mediumreactivewebflux5security_db.config.jwt.JWTUtil;
+import com.example.mediumreactivewebflux5security_db.config.metrics.SecurityMetrics;
+import com.example.mediumreactivewebflux5security_db.config.security.AuthenticationAuditor;
+import com.example.mediumreactivewebflux5security_db.config.security.HasAnyRole;
+import com.example.mediumreactivewebflux5security_db.config.security.TokenRevocationRegistry;
+import com.example.mediumreactivewebflux5security_db.controller.SecuredController;
+import com.example.mediumreactivewebflux5security_db.model.Role;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configurers.AuthorizeHttpRequestsConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.mediumreactivewebflux5security_db.model.Role.ROLE_ADMIN;
+import static com.example.mediumreactivewebflux5security_db.model.Role.ROLE_METRICS;
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+
+/**
+ * The servlet security chain of the virtual thread mode, with the same public endpoints, required roles and 401/403 responses
+ * as the reactive {@code WebfluxSecurityConfiguration}.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableWebSecurity
+@RequiredArgsConstructor
+public class VirtualThreadSecurityConfiguration {
+
+    private final JWTUtil jwtUtil;
+    private final BlockingUserDetailsService userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final SecurityMetrics securityMetrics;
+    private final AuthenticationAuditor authenticationAuditor;
+    private final BlockingRefreshSessionRepository refreshSessionRepository;
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception {
+        httpSecurity.csrf().disable()
+                .formLogin().disable()
+                .httpBasic().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
+                .exceptionHandling()
+                .authenticationEntryPoint((request, response, exception) -> {
+                    securityMetrics.recordAccessDenied(UNAUTHORIZED, List.of());
+                    response.setStatus(UNAUTHORIZED.value());
+                })
+                .accessDeniedHandler((request, response, exception) -> {
+                    securityMetrics.recordAccessDenied(FORBIDDEN, SecurityContextHolder.getContext().getAuthentication().getAuthorities());
+                    response.setStatus(FORBIDDEN.value());
+                }).and()
+                .authorizeHttpRequests(requests -> {
+                    requests
+                            .requestMatchers("/login").permitAll()
+                            .requestMatchers("/actuator/health").permitAll()
+                            .requestMatchers("/actuator/prometheus").hasAnyAuthority(ROLE_ADMIN.name(), ROLE_METRICS.name())
+                            .requestMatchers(HttpMethod.OPTIONS).permitAll();
+                    authorizeSecuredRoutes(requests);
+                    requests.anyRequest().denyAll();
+                })
+                .addFilterBefore(
+                        new BearerTokenAuthenticationFilter(jwtUtil, userDetailsService, tokenRevocationRegistry, securityMetrics, authenticationAuditor,
+                                refreshSessionRepository),
+                        AnonymousAuthenticationFilter.class
+                );
+        return httpSecurity.build();
+    }
+
+    /**
+     * Requires the roles declared by the {@link HasAnyRole} annotations of the reactive {@link SecuredController}, which also
+     * drive its route table, so both modes authorize the {@code /secured/**} routes alike.
+     */
+    private static void authorizeSecuredRoutes(AuthorizeHttpRequestsConfigurer<HttpSecurity>.AuthorizationManagerRequestMatcherRegistry requests) {
+        String prefix = AnnotatedElementUtils.findMergedAnnotation(SecuredController.class, RequestMapping.class).path()[0];
+        for (Method method : SecuredController.class.getDeclaredMethods()) {
+            HasAnyRole hasAnyRole = AnnotatedElementUtils.findMergedAnnotation(method, HasAnyRole.class);
+            RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+            if (hasAnyRole != null && mapping != null) {
+                String[] authorities = Arrays.stream(hasAnyRole.value()).map(Role::name).toArray(String[]::new);
+                for (String path : mapping.path()) {
+                    requests.requestMatchers(prefix + path).hasAnyAuthority(authorities);
+                }
+            }
+        }
+    }
+
+}
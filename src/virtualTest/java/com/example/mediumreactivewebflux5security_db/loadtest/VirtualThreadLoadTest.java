@@ -0,0 +1,98 @@
+package com.example.mediumreactivewebflux5security_db.loadtest;
+
+import com.example.mediumreactivewebflux5security_db.loadtest.LoadDriver.LoadProfile;
+import com.example.mediumreactivewebflux5security_db.model.User;
+import com.example.mediumreactivewebflux5security_db.model.UserCredentials;
+import com.example.mediumreactivewebflux5security_db.virtual.BlockingRefreshSessionRepository;
+import com.example.mediumreactivewebflux5security_db.virtual.BlockingUserRepository;
+import com.example.mediumreactivewebflux5security_db.virtual.VirtualThreadApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends the traffic of {@link AuthenticationLoadTest} to the virtual thread mode, with MongoDB replaced by an in-memory
+ * {@link BlockingUserRepository}. Both tests read the same {@code loadtest.*} properties, so running them together prints the
+ * two modes side by side:
+ * {@code ./mvnw -Pvirtual-threads,load-test test -Dloadtest.users=1000 -Dloadtest.requests=200000 -Dloadtest.concurrency=256}.
+ */
+@Tag("load")
+@SpringBootTest(
+        classes = {VirtualThreadApplication.class, VirtualThreadLoadTest.InMemoryMongoConfiguration.class},
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.main.web-application-type=servlet",
+                "spring.autoconfigure.exclude="
+                        + "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration"
+        }
+)
+class VirtualThreadLoadTest {
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private InMemoryBlockingUserRepository blockingUserRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void loginAndSecuredTraffic() {
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        List<User> users = LoadDriver.users(profile.users(), passwordEncoder.encode(LoadDriver.PASSWORD));
+        users.forEach(blockingUserRepository::save);
+
+        Map<String, LatencyRecorder> recorders = new LoadDriver(port, profile, "virtual thread").run(users);
+
+        assertThat(recorders.values()).allSatisfy(recorder -> assertThat(recorder.failures()).isZero());
+    }
+
+    @TestConfiguration
+    static class InMemoryMongoConfiguration {
+
+        @Bean
+        InMemoryBlockingUserRepository blockingUserRepository() {
+            return new InMemoryBlockingUserRepository();
+        }
+
+        /**
+         * The tokens of this mode carry no session, none is ever looked up.
+         */
+        @Bean
+        BlockingRefreshSessionRepository blockingRefreshSessionRepository() {
+            return sessionId -> false;
+        }
+    }
+
+    static class InMemoryBlockingUserRepository implements BlockingUserRepository {
+
+        private final Map<String, UserCredentials> byUsername = new ConcurrentHashMap<>();
+
+        void save(User user) {
+            byUsername.put(user.getUsername(), new UserCredentials(user.getUsername(), user.getPassword(), user.getEnabled(),
+                    user.getRoles(), user.getAccountExpiresAt(), user.getCredentialsExpireAt(), user.getLockedUntil()));
+        }
+
+        @Override
+        public Optional<UserCredentials> findCredentialsByUsername(String username) {
+            return Optional.ofNullable(byUsername.get(username));
+        }
+    }
+
+}